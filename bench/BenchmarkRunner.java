@@ -0,0 +1,221 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+
+
+/**
+ * Minimal micro-benchmark harness in the spirit of JMH.
+ * Each benchmark is warmed up, then timed over several fixed-length
+ * iterations; the average time per operation and its error are reported
+ * and written out in JMH's JSON result format.
+ */
+public class BenchmarkRunner {
+	/** nanoseconds in a millisecond */
+	public static final long NANOS_PER_MILLI = 1000000L;
+	/** Student t quantiles for 99.9% confidence, as JMH reports, by
+	 * degrees of freedom (index 0 unused) */
+	private static final double[] T_999 = {Double.NaN,
+			636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041,
+			4.781, 4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965,
+			3.922, 3.883, 3.850, 3.819, 3.792, 3.768, 3.745, 3.725, 3.707,
+			3.690, 3.674, 3.659, 3.646};
+	/** degrees of freedom of the quantiles beyond the table */
+	private static final int[] T_999_DF = {40, 60, 120};
+	/** Student t quantiles at T_999_DF */
+	private static final double[] T_999_FAR = {3.551, 3.460, 3.373};
+	
+	
+	/** A single benchmarked operation */
+	public interface Op {
+		/** Run the operation once.
+		 * @return long Any result, consumed to defeat dead code removal.
+		 */
+		long run() throws Exception;
+	}
+	
+	/** An operation that uses up its state and must be reset now and then.
+	 * Resets happen between timed runs and are not measured.
+	 */
+	public interface ResettableOp extends Op {
+		/** Is the state used up.
+		 * @return boolean True if reset must be called before the next run.
+		 */
+		boolean isSpent();
+		
+		/** Prepare a fresh state for the next run. */
+		void reset() throws Exception;
+	}
+	
+	
+	/** Result of one benchmark */
+	private static class Result {
+		/** name of benchmark */
+		private String name;
+		/** parameters of benchmark, as "key=value" pairs */
+		private String[] params;
+		/** nanoseconds per operation of each measured iteration */
+		private double[] samples;
+	}
+	
+	
+	/** sink for results of operations */
+	private static volatile long blackhole;
+	
+	/** number of warmup iterations */
+	private int warmups;
+	
+	/** number of measured iterations */
+	private int iterations;
+	
+	/** length of each iteration (milliseconds) */
+	private long iterationMillis;
+	
+	/** all results so far */
+	private ArrayList<Result> results = new ArrayList<>();
+	
+	
+	/** Constructor.
+	 * @param warmups Number of warmup iterations.
+	 * @param iterations Number of measured iterations.
+	 * @param iterationMillis Length of each iteration (milliseconds).
+	 */
+	public BenchmarkRunner(int warmups, int iterations, long iterationMillis) {
+		this.warmups = warmups;
+		this.iterations = iterations;
+		this.iterationMillis = iterationMillis;
+	}
+	
+	
+	/** Warm up and measure an operation, printing the result.
+	 * @param name Name of benchmark.
+	 * @param op Operation to be measured.
+	 * @param params Parameters of benchmark, as "key=value" pairs.
+	 */
+	public void run(String name, Op op, String... params) throws Exception {
+		for (int i=0; i<warmups; i++) {
+			iteration(op);
+		}
+		Result result = new Result();
+		result.name = name;
+		result.params = params;
+		result.samples = new double[iterations];
+		for (int i=0; i<iterations; i++) {
+			result.samples[i] = iteration(op);
+		}
+		results.add(result);
+		
+		System.out.printf(Locale.ROOT, "%-24s %-32s %14.1f +- %10.1f ns/op%n",
+				name, String.join(",", params), mean(result.samples),
+				error(result.samples));
+	}
+	
+	
+	/** Write all results in JMH's JSON result format.
+	 * @param outfile Path to output file.
+	 */
+	public void writeJson(String outfile) throws IOException {
+		try (PrintWriter out = new PrintWriter(new FileWriter(outfile))) {
+			out.println("[");
+			for (int r=0; r<results.size(); r++) {
+				Result result = results.get(r);
+				out.println("  {");
+				out.printf("    \"benchmark\" : \"%s\",%n", result.name);
+				out.println("    \"mode\" : \"avgt\",");
+				out.printf("    \"warmupIterations\" : %d,%n", warmups);
+				out.printf("    \"measurementIterations\" : %d,%n", 
+						iterations);
+				out.printf("    \"measurementTime\" : \"%d ms\",%n", 
+						iterationMillis);
+				out.println("    \"params\" : {");
+				for (int p=0; p<result.params.length; p++) {
+					String[] pair = result.params[p].split("=", 2);
+					out.printf("      \"%s\" : \"%s\"%s%n", pair[0], 
+							pair.length > 1 ? pair[1] : "",
+							p < result.params.length-1 ? "," : "");
+				}
+				out.println("    },");
+				out.println("    \"primaryMetric\" : {");
+				out.printf(Locale.ROOT, "      \"score\" : %.3f,%n", 
+						mean(result.samples));
+				// JSON has no NaN, so an unknown error is written as null
+				double error = error(result.samples);
+				out.printf(Locale.ROOT, "      \"scoreError\" : %s,%n", 
+						Double.isNaN(error) ? "null" 
+						: String.format(Locale.ROOT, "%.3f", error));
+				out.println("      \"scoreUnit\" : \"ns/op\",");
+				out.print("      \"rawData\" : [ [ ");
+				for (int i=0; i<result.samples.length; i++) {
+					out.printf(Locale.ROOT, "%s%.3f", i > 0 ? ", " : "",
+							result.samples[i]);
+				}
+				out.println(" ] ]");
+				out.println("    }");
+				out.println(r < results.size()-1 ? "  }," : "  }");
+			}
+			out.println("]");
+		}
+	}
+	
+	
+	private double iteration(Op op) throws Exception {
+		// run operation repeatedly for one iteration, return ns per op
+		// (time spent resetting a used up operation is left out)
+		long deadline = iterationMillis * NANOS_PER_MILLI;
+		long ops = 0, sink = 0, paused = 0;
+		long start = System.nanoTime(), elapsed;
+		do {
+			sink += op.run();
+			ops++;
+			if (op instanceof ResettableOp && ((ResettableOp) op).isSpent()) {
+				long pause = System.nanoTime();
+				((ResettableOp) op).reset();
+				paused += System.nanoTime() - pause;
+			}
+			elapsed = System.nanoTime() - start - paused;
+		} while (elapsed < deadline);
+		blackhole += sink;
+		return (double) elapsed / ops;
+	}
+	
+	private static double mean(double[] samples) {
+		double sum = 0;
+		for (double sample : samples) {
+			sum += sample;
+		}
+		return sum / samples.length;
+	}
+	
+	private static double error(double[] samples) {
+		// half width of confidence interval of the mean
+		if (samples.length < 2) {
+			return Double.NaN;
+		}
+		double mean = mean(samples), sq = 0;
+		for (double sample : samples) {
+			sq += (sample - mean) * (sample - mean);
+		}
+		double stdev = Math.sqrt(sq / (samples.length - 1));
+		return quantile(samples.length - 1) * stdev 
+				/ Math.sqrt(samples.length);
+	}
+	
+	private static double quantile(int df) {
+		// t quantile for df degrees of freedom, rounding df down to the
+		// nearest tabled value so the interval is never understated
+		if (df < T_999.length) {
+			return T_999[df];
+		}
+		double t = T_999[T_999.length - 1];
+		for (int i=0; i<T_999_DF.length && T_999_DF[i] <= df; i++) {
+			t = T_999_FAR[i];
+		}
+		return t;
+	}
+}
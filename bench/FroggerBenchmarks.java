@@ -0,0 +1,391 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+
+/**
+ * Benchmarks of the simulation, collision and loading hot paths, run
+ * headless. Results are printed and written as JSON.
+ * 
+ * Build and run from the project root:
+ *   javac -cp lib/slick.jar -d out src/utilities/*.java src/*.java bench/*.java
+ *   java -cp out:lib/slick.jar FroggerBenchmarks [outfile] [iterationMillis]
+ */
+public class FroggerBenchmarks {
+	/** default file results are written to */
+	public static final String DEFAULT_OUTFILE = "benchmark.json";
+	/** default length of each iteration (milliseconds) */
+	public static final long DEFAULT_ITERATION_MILLIS = 500;
+	/** number of warmup iterations */
+	public static final int WARMUPS = 3;
+	/** number of measured iterations */
+	public static final int ITERATIONS = 5;
+	/** time passed per simulated frame (milliseconds) */
+	public static final int DELTA = 16;
+	/** sprite counts of collision benchmarks */
+	public static final int[] SPRITE_COUNTS = {100, 1000, 10000};
+	/** moving object counts of traffic benchmarks */
+	public static final int[] TRAFFIC_COUNTS = {1000, 10000, 50000};
+	/** most sprites tested all against all */
+	public static final int MAX_ALL_PAIRS = 1000;
+	/** seed of randomly placed sprites */
+	public static final long SEED = 20003;
+	
+	
+	/** Start-up method. Runs all benchmarks.
+	 * @param args Output file and iteration length (both optional).
+	 */
+	public static void main(String[] args) throws Exception {
+		String outfile = args.length > 0 ? args[0] : DEFAULT_OUTFILE;
+		long millis = args.length > 1 ? Long.parseLong(args[1]) 
+									: DEFAULT_ITERATION_MILLIS;
+		BenchmarkRunner runner = new BenchmarkRunner(WARMUPS, ITERATIONS, 
+									millis);
+		GameRandom.setSeed(SEED);
+		
+		benchmarkTicks(runner);
+		benchmarkTraffic(runner);
+		benchmarkCollisions(runner);
+		benchmarkLoading(runner);
+		benchmarkTags(runner);
+		
+		runner.writeJson(outfile);
+		System.out.println("results written to " + outfile);
+	}
+	
+	
+	/** Benchmark a full World tick on the game's levels.
+	 * @param runner Harness.
+	 */
+	public static void benchmarkTicks(BenchmarkRunner runner) 
+			throws Exception {
+		benchmarkTick(runner, () -> HeadlessGame.createWorld("0"), "0");
+		benchmarkTick(runner, () -> HeadlessGame.createWorld("1"), "1");
+		benchmarkTick(runner, () -> createEndlessWorld(-1), "bonus");
+		benchmarkTick(runner, () -> 
+				createEndlessWorld(EndlessGameState.RANDOM_START), "random");
+	}
+	
+	
+	/** Benchmark a World tick crowded with moving objects, with traffic held
+	 * in the structure-of-arrays store and as individual objects.
+	 * @param runner Harness.
+	 */
+	public static void benchmarkTraffic(BenchmarkRunner runner) 
+			throws Exception {
+		ScriptedInput input = new ScriptedInput(new int[0], new int[0]);
+		for (int n : TRAFFIC_COUNTS) {
+			for (boolean store : new boolean[] {true, false}) {
+				Player player = HeadlessGame.resetPlayer(
+						HeadlessGame.PLAYER_X, HeadlessGame.PLAYER_Y);
+				World world = new World(player, createTraffic(n), 
+										new Goal[0], store);
+				// stepped directly, as a world without goals counts as
+				// completed and update would not simulate it
+				runner.run("traffic.tick", () -> {
+					world.tick(input, World.STEP);
+					return player.getLives();
+				}, "objects=" + n, "store=" + (store ? "soa" : "sprites"));
+			}
+		}
+	}
+	
+	
+	/** Benchmark collision checks of player against many sprites.
+	 * @param runner Harness.
+	 */
+	public static void benchmarkCollisions(BenchmarkRunner runner) 
+			throws Exception {
+		for (int n : SPRITE_COUNTS) {
+			ArrayList<Sprite> sprites = createScatteredSprites(n, 
+												App.SCREEN_WIDTH);
+			Player player = HeadlessGame.resetPlayer(HeadlessGame.PLAYER_X,
+								HeadlessGame.PLAYER_Y);
+			String param = "sprites=" + n;
+			
+			runner.run("collision.linear", () -> {
+				long hits = 0;
+				for (Sprite sprite : sprites) {
+					if (player.collidesWith(sprite)) {
+						hits++;
+					}
+				}
+				return hits;
+			}, param);
+			
+			LaneIndex index = new LaneIndex(sprites);
+			ArrayList<Sprite> nearby = new ArrayList<>();
+			runner.run("collision.laneIndex", () -> {
+				long hits = 0;
+				nearby.clear();
+				index.query(player, nearby);
+				for (Sprite sprite : nearby) {
+					if (player.collidesWith(sprite)) {
+						hits++;
+					}
+				}
+				return hits;
+			}, param);
+			
+			// sprite-to-sprite, all against all; lanes are widened with
+			// the count, so sprites keep the density of the screen
+			ArrayList<Sprite> spread = createScatteredSprites(n, 
+					App.SCREEN_WIDTH * n / SPRITE_COUNTS[0]);
+			long[] pairs = new long[1];
+			CollisionStage stage = new CollisionStage();
+			stage.addRule(Sprite.LETHAL.bit(), Sprite.LETHAL.bit(),
+					(a, b) -> pairs[0]++);
+			spread.forEach(stage::add);
+			stage.update();
+			String candidates = "candidates=" + stage.getCandidates();
+			String touching = "pairs=" + pairs[0];
+			runner.run("collision.pairs", () -> {
+				pairs[0] = 0;
+				stage.update();
+				return pairs[0];
+			}, param, "impl=sweep", candidates, touching);
+			if (n <= MAX_ALL_PAIRS) {
+				runner.run("collision.pairs", () -> {
+					long hits = 0;
+					for (int i=0; i<spread.size(); i++) {
+						for (int j=i+1; j<spread.size(); j++) {
+							if (spread.get(i).collidesWith(spread.get(j))) {
+								hits++;
+							}
+						}
+					}
+					return hits;
+				}, param, "impl=allPairs");
+			}
+		}
+	}
+	
+	
+	/** Benchmark level parsing, instantiation from a template and endless
+	 * lane generation.
+	 * @param runner Harness.
+	 */
+	public static void benchmarkLoading(BenchmarkRunner runner) 
+			throws Exception {
+		TextureCache.setHeadless(true);
+		// compiled levels go to a temporary directory, not the assets
+		File tempDir = Files.createTempDirectory("frogger-bench").toFile();
+		tempDir.deleteOnExit();
+		for (String level : new String[] {"0", "1"}) {
+			String csv = LevelLoader.LEVEL_DIR + level + LevelLoader.LEVEL_EXT;
+			File compiledFile = new File(tempDir, level 
+										+ LevelLoader.COMPILED_EXT);
+			String compiled = compiledFile.getPath();
+			LevelCompiler.compile(csv, compiled);
+			compiledFile.deleteOnExit();
+			
+			runner.run("level.parse", () -> {
+				ArrayList<Sprite> sprites = new ArrayList<>();
+				LevelLoader.parseCsv(csv, (type, x, y, moveRight) -> 
+						sprites.add(type.create(x, y, moveRight)));
+				return sprites.size();
+			}, "level=" + level, "format=csv");
+			runner.run("level.parse", () -> {
+				ArrayList<Sprite> sprites = new ArrayList<>();
+				LevelLoader.readCompiled(compiled, (type, x, y, moveRight) ->
+						sprites.add(type.create(x, y, moveRight)));
+				return sprites.size();
+			}, "level=" + level, "format=compiled");
+			LevelTemplate template = LevelTemplate.get(level);
+			runner.run("level.instantiate", () -> {
+				// recycled, so pooled sprites are reused every iteration
+				ArrayList<Sprite> sprites = template.createSprites();
+				sprites.forEach(SpritePool::recycle);
+				return sprites.size();
+			}, "level=" + level);
+		}
+		runner.run("lane.generate", () -> 
+				new RandomLane(EndlessGameState.WORLD_Y[0], 
+						GameRandom.lane("bench", 0)).getSprites().size());
+		runner.run("endless.generate", () -> {
+			// recycled, so pooled sprites are reused every iteration
+			ArrayList<Sprite> sprites = EndlessGameState.createRandomSprites(
+					EndlessGameState.RANDOM_START, "bench");
+			sprites.forEach(SpritePool::recycle);
+			return sprites.size();
+		}, "lanes=" + EndlessGameState.LANES);
+	}
+	
+	
+	/** Benchmark tag queries, against the former list based tags.
+	 * @param runner Harness.
+	 */
+	public static void benchmarkTags(BenchmarkRunner runner) 
+			throws Exception {
+		TextureCache.setHeadless(true);
+		Sprite turtle = WaterTransport.createTurtle(0, 0, false);
+		ListTags listTurtle = new ListTags("floating", "diveable", 
+											"flippable");
+		int hazards = Sprite.Tag.mask(Sprite.LETHAL, Sprite.SOLID);
+		
+		runner.run("tags.query", () -> {
+			long found = 0;
+			found += turtle.hasTag(Sprite.LETHAL) ? 1 : 0;
+			found += turtle.hasTag(Sprite.FLOATING) ? 1 : 0;
+			found += turtle.hasTag(Sprite.FLIPPABLE) ? 1 : 0;
+			found += turtle.hasAnyTag(hazards) ? 1 : 0;
+			turtle.removeTag(Sprite.FLOATING);
+			turtle.addTag(Sprite.FLOATING);
+			return found;
+		}, "impl=bitmask");
+		
+		runner.run("tags.query", () -> {
+			long found = 0;
+			found += listTurtle.hasTag("lethal") ? 1 : 0;
+			found += listTurtle.hasTag("floating") ? 1 : 0;
+			found += listTurtle.hasTag("flippable") ? 1 : 0;
+			found += listTurtle.hasTag("lethal") 
+					|| listTurtle.hasTag("solid") ? 1 : 0;
+			listTurtle.removeTag("floating");
+			listTurtle.addTag("floating");
+			return found;
+		}, "impl=list");
+	}
+	
+	
+	/** Build an endless world headless.
+	 * @param level Endless level, or -1 for the bonus level.
+	 * @return World Endless world.
+	 */
+	public static World createEndlessWorld(int level) throws Exception {
+		Player player = HeadlessGame.resetPlayer(EndlessGameState.PLAYER_X,
+							EndlessGameState.PLAYER_Y);
+		return EndlessGameState.createWorld(Math.max(level, 0), level < 0,
+											player);
+	}
+	
+	
+	private static void benchmarkTick(BenchmarkRunner runner, 
+			WorldFactory factory, String level) throws Exception {
+		// benchmark ticks of one kind of world, then dispose the last one
+		Tick tick = new Tick(factory);
+		runner.run("world.tick", tick, "level=" + level);
+		tick.world.dispose();
+	}
+	
+	private static ArrayList<Sprite> createScatteredSprites(int n, 
+			int width) {
+		// buses scattered over all lanes of a width, at a fixed seed
+		TextureCache.setHeadless(true);
+		Random random = new Random(SEED);
+		ArrayList<Sprite> sprites = new ArrayList<>();
+		for (int i=0; i<n; i++) {
+			float x = random.nextFloat() * width;
+			float y = random.nextInt(LaneIndex.LANES) * App.TILE_SIZE;
+			sprites.add(Vehicle.createBus(x, y, random.nextBoolean()));
+		}
+		return sprites;
+	}
+	
+	
+	private static ArrayList<Sprite> createTraffic(int n) {
+		// vehicles and logs on the lanes above the player, so the player
+		// keeps its lives while traffic wraps around
+		TextureCache.setHeadless(true);
+		Random random = new Random(SEED);
+		int lanes = LaneIndex.laneOf(HeadlessGame.PLAYER_Y) 
+					- LaneIndex.LANE_REACH;
+		ArrayList<Sprite> sprites = new ArrayList<>();
+		for (int i=0; i<n; i++) {
+			float x = random.nextFloat() * App.SCREEN_WIDTH;
+			float y = random.nextInt(lanes) * App.TILE_SIZE;
+			boolean moveRight = random.nextBoolean();
+			switch (i % 4) {
+			case 0:
+				sprites.add(Vehicle.createBus(x, y, moveRight));
+				break;
+			case 1:
+				sprites.add(Vehicle.createRacecar(x, y, moveRight));
+				break;
+			case 2:
+				sprites.add(Vehicle.createBike(x, y, moveRight));
+				break;
+			default:
+				sprites.add(WaterTransport.createLog(x, y, moveRight));
+			}
+		}
+		return sprites;
+	}
+	
+	
+	/** Supplier of a world that may throw */
+	private interface WorldFactory {
+		World create() throws Exception;
+	}
+	
+	
+	/** One World tick per operation, rebuilding the world when it ends */
+	private static class Tick implements BenchmarkRunner.ResettableOp {
+		/** creates the world */
+		private WorldFactory factory;
+		/** world being ticked */
+		private World world;
+		/** no key presses */
+		private ScriptedInput input = new ScriptedInput(new int[0], 
+											new int[0]);
+		
+		private Tick(WorldFactory factory) throws Exception {
+			this.factory = factory;
+			this.world = factory.create();
+		}
+		
+		@Override
+		public long run() throws Exception {
+			input.advance();
+			world.update(input, DELTA);
+			return Player.getPlayer().getLives();
+		}
+		
+		@Override
+		public boolean isSpent() {
+			return world.isLevelCompleted() || world.isGameOver();
+		}
+		
+		@Override
+		public void reset() throws Exception {
+			world.dispose();
+			world = factory.create();
+		}
+	}
+	
+	
+	/** Former list based tags, kept as baseline of the tag benchmark */
+	private static class ListTags {
+		/** tags */
+		private ArrayList<String> tags = new ArrayList<>();
+		
+		private ListTags(String... tags) {
+			for (String tag : tags) {
+				this.tags.add(tag);
+			}
+		}
+		
+		private boolean hasTag(String tag) {
+			for (String s : this.tags) {
+				if (s.equals(tag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		private void addTag(String tag) {
+			this.tags.add(tag);
+		}
+		
+		private void removeTag(String tag) {
+			this.tags.remove(tag);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import java.util.ArrayList;
+
+
+/**
+ * Checks that traffic held in a TrafficStore moves as the objects move on
+ * their own. The moving objects of every level are built twice, one copy
+ * attached to a store, and both are ticked one step; their x positions
+ * must agree. Exits with status 1 on a mismatch.
+ *
+ * Build and run from the project root:
+ *   javac -cp lib/slick.jar -d out src/utilities/*.java src/*.java bench/*.java
+ *   java -cp out:lib/slick.jar TrafficCheck
+ */
+public class TrafficCheck {
+	/** levels checked */
+	public static final String[] LEVELS = {"0", "1", "bonus", "endless"};
+	/** largest difference allowed between the two positions (pixels) */
+	public static final float TOLERANCE = 0.01f;
+
+
+	/** Start-up method. Checks every level.
+	 * @param args Unused.
+	 */
+	public static void main(String[] args) throws Exception {
+		TextureCache.setHeadless(true);
+		int mismatches = 0;
+		for (String level : LEVELS) {
+			mismatches += check(level);
+		}
+		if (mismatches > 0) {
+			System.out.println(mismatches + " objects moved differently");
+			System.exit(1);
+		}
+		System.out.println("traffic store matches on all levels");
+	}
+
+
+	/** Tick the moving objects of a level one step, on their own and held
+	 * in a store, and report those ending at different positions.
+	 * @param level Level to check.
+	 * @return int Number of mismatching objects.
+	 */
+	public static int check(String level) throws Exception {
+		ArrayList<MovingObject> loose = new ArrayList<>();
+		ArrayList<MovingObject> stored = new ArrayList<>();
+		LevelLoader.readLevel(level, (type, x, y, moveRight) -> {
+			Sprite a = type.create(x, y, moveRight);
+			if (a instanceof MovingObject) {
+				loose.add((MovingObject) a);
+				stored.add((MovingObject) type.create(x, y, moveRight));
+			}
+		});
+
+		TrafficStore store = new TrafficStore(stored);
+		ScriptedInput input = new ScriptedInput(new int[0], new int[0]);
+		for (MovingObject object : loose) {
+			object.update(input, World.STEP);
+		}
+		store.update(World.STEP);
+
+		int mismatches = 0;
+		for (int i=0; i<loose.size(); i++) {
+			float expected = loose.get(i).getX();
+			float actual = stored.get(i).getX();
+			if (Math.abs(expected - actual) > TOLERANCE) {
+				System.out.printf("level %s, object %d at y=%.0f: x=%.3f, "
+						+ "stored x=%.3f%n", level, i, loose.get(i).getY(),
+						expected, actual);
+				mismatches++;
+			}
+		}
+		return mismatches;
+	}
+}
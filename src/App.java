@@ -28,11 +28,26 @@ public class App extends StateBasedGame {
 	}
 
 	/**
-	 * Start-up method. Creates the game and runs it.
+	 * Start-up method. Creates the game and runs it. The randomness may be
+	 * seeded with "--seed n", the session recorded to a file with
+	 * "--record file", or a recorded session played back with
+	 * "--replay file".
 	 * 
-	 * @param args Command-line arguments (ignored).
+	 * @param args Command-line arguments.
 	 */
 	public static void main(String[] args) throws SlickException {
+		args = GameRandom.parseSeed(args);
+		for (int i=0; i+1<args.length; i++) {
+			if (args[i].equals("--record")) {
+				ReplaySession.startRecording(args[++i]);
+				Runtime.getRuntime().addShutdownHook(
+						new Thread(ReplaySession::save));
+			} else if (args[i].equals("--replay")) {
+				ReplaySession.startPlayback(Replay.read(args[++i]));
+			}
+		}
+		System.out.println("seed " + GameRandom.getSeed());
+		
 		AppGameContainer app = new AppGameContainer(new App());
 		app.setShowFPS(false);
 		app.setDisplayMode(SCREEN_WIDTH, SCREEN_HEIGHT, false);
@@ -0,0 +1,202 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.SlickException;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+
+
+/**
+ * Packs the game's images into a single texture page, which TextureCache
+ * loads once and hands out regions of, so a frame is drawn from one
+ * texture and start-up decodes one file.
+ *
+ * Images are placed on shelves, tallest first, trying each power of two
+ * page width and keeping the smallest page. Each region is surrounded by
+ * a gutter repeating its edge pixels, so filtering never samples a
+ * neighbour. The index holds one "path x y width height" line per region.
+ *
+ * Usage: java AtlasPacker [image ...] (all images in assets if none given)
+ */
+public class AtlasPacker {
+	/** directory of the game's images */
+	public static final String ASSET_DIR = "assets/";
+	/** extensions of images packed by default */
+	public static final String[] IMAGE_EXTS = {".png", ".jpg", ".jpeg"};
+	/** gutter around each region (pixels) */
+	public static final int GUTTER = 2;
+	/** narrowest page tried (pixels) */
+	public static final int MIN_SIZE = 64;
+	/** largest page allowed, safe on low-end graphics (pixels) */
+	public static final int MAX_SIZE = 2048;
+
+
+	/** Start-up method. Packs images into the atlas.
+	 * @param args Images to pack (all images in assets if none given).
+	 */
+	public static void main(String[] args) throws SlickException {
+		ArrayList<String> paths = new ArrayList<>();
+		if (args.length > 0) {
+			paths.addAll(Arrays.asList(args));
+		} else {
+			File[] files = new File(ASSET_DIR).listFiles(
+					(dir, name) -> isImage(name));
+			if (files != null) {
+				Arrays.sort(files);
+				for (File file : files) {
+					String path = ASSET_DIR + file.getName();
+					if (!path.equals(TextureCache.ATLAS_PAGE)) {
+						paths.add(path);
+					}
+				}
+			}
+		}
+
+		int[] size = pack(paths, TextureCache.ATLAS_PAGE,
+						TextureCache.ATLAS_INDEX);
+		System.out.println("packed " + paths.size() + " images into "
+				+ TextureCache.ATLAS_PAGE + " (" + size[0] + "x" + size[1]
+				+ ")");
+	}
+
+
+	/** Pack images into a page and write the index of their regions.
+	 * @param paths Paths to the images.
+	 * @param pageFile Path to the page (png).
+	 * @param indexFile Path to the index.
+	 * @return int[] Width and height of the page.
+	 */
+	public static int[] pack(ArrayList<String> paths, String pageFile,
+			String indexFile) throws SlickException {
+		BufferedImage[] images = new BufferedImage[paths.size()];
+		for (int i=0; i<images.length; i++) {
+			images[i] = read(paths.get(i));
+		}
+
+		// tallest first, so each shelf is filled with similar heights
+		Integer[] order = new Integer[images.length];
+		for (int i=0; i<order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> images[b].getHeight()
+								- images[a].getHeight());
+
+		// keep the smallest page over all widths
+		int[][] best = null;
+		int bestWidth = 0, bestHeight = 0;
+		for (int width=MIN_SIZE; width<=MAX_SIZE; width*=2) {
+			int[][] places = place(images, order, width);
+			if (places == null) {
+				continue;
+			}
+			int height = MIN_SIZE;
+			for (int i=0; i<images.length; i++) {
+				while (height < places[i][1] + images[i].getHeight()
+						+ GUTTER) {
+					height *= 2;
+				}
+			}
+			if (height <= MAX_SIZE && (best == null
+					|| (long) width * height < (long) bestWidth * bestHeight)) {
+				best = places;
+				bestWidth = width;
+				bestHeight = height;
+			}
+		}
+		if (best == null) {
+			throw new SlickException("Images do not fit in a " + MAX_SIZE
+					+ "x" + MAX_SIZE + " atlas");
+		}
+
+		BufferedImage page = new BufferedImage(bestWidth, bestHeight,
+											BufferedImage.TYPE_INT_ARGB);
+		for (int i=0; i<images.length; i++) {
+			copy(images[i], page, best[i][0], best[i][1]);
+		}
+		try {
+			ImageIO.write(page, "png", new File(pageFile));
+			try (PrintWriter out = new PrintWriter(indexFile,
+					StandardCharsets.US_ASCII.name())) {
+				for (int i=0; i<images.length; i++) {
+					out.println(paths.get(i) + " " + best[i][0] + " "
+							+ best[i][1] + " " + images[i].getWidth() + " "
+							+ images[i].getHeight());
+				}
+			}
+		} catch (IOException e) {
+			throw new SlickException("Failed to write atlas " + pageFile, e);
+		}
+		return new int[] {bestWidth, bestHeight};
+	}
+
+
+	private static int[][] place(BufferedImage[] images, Integer[] order,
+			int width) {
+		// top left corner of each image on shelves of the given width,
+		// or null if some image is too wide
+		int[][] places = new int[images.length][];
+		int x = 0, y = 0, shelfHeight = 0;
+		for (int i : order) {
+			int w = images[i].getWidth() + 2 * GUTTER;
+			int h = images[i].getHeight() + 2 * GUTTER;
+			if (w > width) {
+				return null;
+			}
+			if (x + w > width) {
+				// start a new shelf
+				x = 0;
+				y += shelfHeight;
+				shelfHeight = 0;
+			}
+			places[i] = new int[] {x + GUTTER, y + GUTTER};
+			x += w;
+			shelfHeight = Math.max(shelfHeight, h);
+		}
+		return places;
+	}
+
+	private static void copy(BufferedImage image, BufferedImage page,
+			int left, int top) {
+		// copy an image, repeating its edge pixels into the gutter
+		int width = image.getWidth(), height = image.getHeight();
+		for (int y=-GUTTER; y<height+GUTTER; y++) {
+			int sy = Math.min(Math.max(y, 0), height - 1);
+			for (int x=-GUTTER; x<width+GUTTER; x++) {
+				int sx = Math.min(Math.max(x, 0), width - 1);
+				page.setRGB(left + x, top + y, image.getRGB(sx, sy));
+			}
+		}
+	}
+
+	private static BufferedImage read(String path) throws SlickException {
+		// decode an image
+		try {
+			BufferedImage image = ImageIO.read(new File(path));
+			if (image == null) {
+				throw new SlickException("Unsupported image: " + path);
+			}
+			return image;
+		} catch (IOException e) {
+			throw new SlickException("Failed to read image: " + path, e);
+		}
+	}
+
+	private static boolean isImage(String name) {
+		// file name has an image extension
+		for (String ext : IMAGE_EXTS) {
+			if (name.endsWith(ext)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.Input;
+
+
+/**
+ * Key presses collected once per frame and held until a simulation step
+ * consumes them. A frame may run several steps or none at all, so each
+ * press is delivered to exactly one step, whatever the frame rate.
+ */
+public class BufferedInput implements InputSource {
+	/** keys used by the simulation */
+	public static final int[] KEYS = {Input.KEY_UP, Input.KEY_DOWN,
+			Input.KEY_LEFT, Input.KEY_RIGHT, Input.KEY_ENTER, Input.KEY_SPACE};
+
+
+	/** keys pressed but not yet consumed, in the order of KEYS */
+	private boolean[] pending = new boolean[KEYS.length];
+
+
+	/** Collect the presses of a frame from a source.
+	 * @param source Source of key presses.
+	 */
+	public void capture(InputSource source) {
+		for (int i=0; i<KEYS.length; i++) {
+			if (source.isKeyPressed(KEYS[i])) {
+				pending[i] = true;
+			}
+		}
+	}
+
+
+	@Override
+	public boolean isKeyPressed(int key) {
+		for (int i=0; i<KEYS.length; i++) {
+			if (KEYS[i] == key && pending[i]) {
+				pending[i] = false;
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,533 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import utilities.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Collisions between sprites, found with a sort-and-sweep broadphase on
+ * each lane. Sprites are bucketed by lane and kept sorted by the left
+ * edge of the span their bounds covered over the last step. The order is
+ * carried over between steps and restored with an insertion sort, close
+ * to linear as lanes barely reorder. Sweeping along each lane, and across
+ * to the lane below, pairs the sprites whose x intervals overlap and
+ * whose current tags match some rule; pairs whose bounds intersect are
+ * passed to every rule matching their tags. Rules may also take pairs
+ * where a moving object passed through the other sprite during the step.
+ *
+ * A rule may instead be anchored to one sprite outside the stage (such as
+ * the player), which is then only tested against the lanes around it.
+ * Lanes are refreshed only when swept or probed, so with anchored rules
+ * alone a step costs as much as the lanes near the anchors. As in
+ * LaneIndex, sprites are taken to be no taller than a lane, and a sprite
+ * changing lane is only moved once its old lane is next refreshed.
+ */
+public class CollisionStage {
+	/** number of bits in a sprite's tags */
+	private static final int TAG_BITS = Sprite.Tag.values().length;
+
+
+	/** Reacts to two sprites colliding */
+	public interface PairHandler {
+		/** Handle a collision.
+		 * @param a Sprite matching the first tags of the rule.
+		 * @param b Sprite matching the second tags of the rule.
+		 */
+		void onCollision(Sprite a, Sprite b);
+	}
+
+
+	/** Handler of collisions between sprites of two sets of tags */
+	private static class Rule {
+		/** tags of the first sprite (0 for any sprite) */
+		private int tagsA;
+		/** tags of the second sprite (0 for any sprite) */
+		private int tagsB;
+		/** tags of moving objects also taken when they pass through the
+		 * other sprite during a step (0 for touching sprites only) */
+		private int sweptTags;
+		/** sprite outside the stage taken as the first of every pair
+		 * (null to pair sprites in the stage) */
+		private Sprite anchor;
+		/** reaction to the collision */
+		private PairHandler handler;
+	}
+
+
+	/** A single lane of sprites, sorted by left edge */
+	private static class Lane {
+		/** number of sprites on the lane */
+		private int size = 0;
+		/** sprites on the lane */
+		private Sprite[] sprites = new Sprite[16];
+		/** left edge of each sprite's bounds */
+		private float[] lefts = new float[16];
+		/** right edge of each sprite's bounds */
+		private float[] rights = new float[16];
+		/** tags of each sprite when the lane was last refreshed */
+		private int[] tags = new int[16];
+		/** step the lane was last refreshed in */
+		private long refreshed = -1;
+		/** are the sprites in order of left edge */
+		private boolean sorted = true;
+	}
+
+
+	/** rules pairing sprites in the stage, in the order they were added */
+	private ArrayList<Rule> rules = new ArrayList<>();
+
+	/** rules anchored to a sprite, in the order they were added */
+	private ArrayList<Rule> anchored = new ArrayList<>();
+
+	/** tags of all rules pairing sprites in the stage */
+	private int ruleTags = 0;
+
+	/** does some rule take sprites of any tags */
+	private boolean anyTags = false;
+
+	/** does some rule pairing sprites in the stage match sprites of two
+	 * tags, indexed by the first tags shifted by TAG_BITS and the second */
+	private boolean[] matching = new boolean[1 << 2 * TAG_BITS];
+
+	/** length of the last step (milliseconds) */
+	private int delta = 0;
+
+	/** number of steps updated */
+	private long step = 0;
+
+	/** all lanes, top to bottom */
+	private Lane[] lanes = new Lane[LaneIndex.LANES];
+
+	/** sprites found around an anchor */
+	private ArrayList<Sprite> found = new ArrayList<>();
+
+	/** sprites that left their lane in the last refresh */
+	private ArrayList<Sprite> movers = new ArrayList<>();
+
+	/** number of candidate pairs found by the last update */
+	private int candidates = 0;
+
+	/** first sprite of each candidate pair */
+	private Sprite[] pairA = new Sprite[64];
+
+	/** second sprite of each candidate pair */
+	private Sprite[] pairB = new Sprite[64];
+
+
+	/** Constructor of a stage without rules. */
+	public CollisionStage() {
+		for (int i=0; i<lanes.length; i++) {
+			lanes[i] = new Lane();
+		}
+	}
+
+
+	/** Add a rule for sprites touching at the end of a step.
+	 * @param tagsA Tags of the first sprite (0 for any sprite).
+	 * @param tagsB Tags of the second sprite (0 for any sprite).
+	 * @param handler Reaction to the two colliding.
+	 */
+	public void addRule(int tagsA, int tagsB, PairHandler handler) {
+		addRule(tagsA, tagsB, 0, handler);
+	}
+
+	/** Add a rule for sprites touching at the end of a step, or meeting
+	 * during it as a moving object passed through the other sprite.
+	 * @param tagsA Tags of the first sprite (0 for any sprite).
+	 * @param tagsB Tags of the second sprite (0 for any sprite).
+	 * @param sweptTags Tags of moving objects tested for passing through
+	 * (0 for none).
+	 * @param handler Reaction to the two colliding.
+	 */
+	public void addRule(int tagsA, int tagsB, int sweptTags, 
+			PairHandler handler) {
+		Rule rule = new Rule();
+		rule.tagsA = tagsA;
+		rule.tagsB = tagsB;
+		rule.sweptTags = sweptTags;
+		rule.handler = handler;
+		rules.add(rule);
+		ruleTags |= tagsA | tagsB;
+		anyTags |= tagsA == 0 || tagsB == 0;
+		for (int a=0; a<1<<TAG_BITS; a++) {
+			for (int b=0; b<1<<TAG_BITS; b++) {
+				matching[a << TAG_BITS | b] |= 
+						matches(a, tagsA) && matches(b, tagsB)
+						|| matches(b, tagsA) && matches(a, tagsB);
+			}
+		}
+	}
+
+	/** Add a rule for a sprite outside the stage touching sprites in it
+	 * at the end of a step, or meeting them during it as a moving object
+	 * passed through the other sprite. Only the lanes around the anchor
+	 * are searched.
+	 * @param anchor Sprite taken as the first of each pair.
+	 * @param tags Tags of the second sprite (0 for any sprite).
+	 * @param sweptTags Tags of moving objects tested for passing through
+	 * (0 for none).
+	 * @param handler Reaction to the two colliding.
+	 */
+	public void addRule(Sprite anchor, int tags, int sweptTags, 
+			PairHandler handler) {
+		Rule rule = new Rule();
+		rule.anchor = anchor;
+		rule.tagsB = tags;
+		rule.sweptTags = sweptTags;
+		rule.handler = handler;
+		anchored.add(rule);
+	}
+
+
+	/** Add a sprite. Whether it takes part in a rule is decided by its
+	 * tags at each update, so its tags may change while it is added.
+	 * @param sprite Sprite to be added.
+	 */
+	public void add(Sprite sprite) {
+		Lane lane = lanes[LaneIndex.laneOf(sprite.getY())];
+		if (lane.size == lane.sprites.length) {
+			int capacity = lane.size * 2;
+			lane.sprites = Arrays.copyOf(lane.sprites, capacity);
+			lane.lefts = Arrays.copyOf(lane.lefts, capacity);
+			lane.rights = Arrays.copyOf(lane.rights, capacity);
+			lane.tags = Arrays.copyOf(lane.tags, capacity);
+		}
+		// appended, and moved into order when the lane is next used
+		lane.sprites[lane.size] = sprite;
+		read(lane, lane.size++);
+		lane.sorted = false;
+	}
+
+
+	/** Remove all sprites, keeping the rules. */
+	public void clear() {
+		for (Lane lane : lanes) {
+			Arrays.fill(lane.sprites, 0, lane.size, null);
+			lane.size = 0;
+		}
+	}
+
+
+	/** Remove a sprite.
+	 * @param sprite Sprite to be removed.
+	 */
+	public void remove(Sprite sprite) {
+		for (Lane lane : lanes) {
+			for (int i=0; i<lane.size; i++) {
+				if (lane.sprites[i] == sprite) {
+					removeAt(lane, i);
+					return;
+				}
+			}
+		}
+	}
+
+
+	/** Find the sprites touching after sprites have moved, and pass each
+	 * pair to the rules matching it. Handlers may move sprites, but must
+	 * not add or remove any.
+	 */
+	public void update() {
+		update(0);
+	}
+
+	/** Find the colliding pairs after a step, and pass each to the rules
+	 * matching it. Handlers may move sprites, but must not add or remove
+	 * any.
+	 * @param delta Length of the step (milliseconds).
+	 */
+	public void update(int delta) {
+		this.delta = delta;
+		step++;
+		candidates = 0;
+
+		// pairs within the stage, from every lane
+		if (!rules.isEmpty()) {
+			for (int l=0; l<lanes.length; l++) {
+				refresh(l);
+			}
+			for (Lane lane : lanes) {
+				sort(lane);
+			}
+			for (int l=0; l<lanes.length; l++) {
+				sweep(lanes[l]);
+				if (l + 1 < lanes.length) {
+					sweep(lanes[l], lanes[l + 1]);
+				}
+			}
+			dispatch(0, null);
+		}
+
+		// pairs with each anchor, from the lanes around it
+		for (int r=0; r<anchored.size(); r++) {
+			Rule rule = anchored.get(r);
+			int first = candidates;
+			probe(rule);
+			dispatch(first, rule);
+		}
+	}
+
+
+	/** Collect the sprites of matching tags that may touch a sprite, from
+	 * its lane and its neighbours, as of the last update (or later, for
+	 * lanes not refreshed by it).
+	 * @param target Sprite of interest (need not be in the stage).
+	 * @param tags Tags of the sprites collected (0 for any sprite).
+	 * @param out List the candidates are appended to.
+	 */
+	public void query(Sprite target, int tags, ArrayList<Sprite> out) {
+		scan(target, tags, out);
+	}
+
+
+	/** Get number of pairs whose x intervals overlapped in the last update.
+	 * @return int Candidate pairs.
+	 */
+	public int getCandidates() {
+		return candidates;
+	}
+
+	/** Get number of sprites taking part.
+	 * @return int Sprites in the stage.
+	 */
+	public int size() {
+		int size = 0;
+		for (Lane lane : lanes) {
+			size += lane.size;
+		}
+		return size;
+	}
+
+
+	private void refresh(int l) {
+		// read bounds and tags of a lane once a step, moving sprites that
+		// changed lane
+		Lane lane = lanes[l];
+		if (lane.refreshed == step) {
+			return;
+		}
+		lane.refreshed = step;
+		for (int i=0; i<lane.size; i++) {
+			Sprite sprite = lane.sprites[i];
+			if (LaneIndex.laneOf(sprite.getY()) != l) {
+				movers.add(sprite);
+				removeAt(lane, i--);
+				continue;
+			}
+			read(lane, i);
+		}
+		lane.sorted = false;
+		for (int i=0; i<movers.size(); i++) {
+			add(movers.get(i));
+		}
+		movers.clear();
+	}
+
+	private void read(Lane lane, int i) {
+		// span a sprite's bounds covered since the last step, and its tags
+		Sprite sprite = lane.sprites[i];
+		BoundingBox box = sprite.getBounds();
+		float dx = delta > 0 && sprite instanceof MovingObject 
+				? ((MovingObject) sprite).getSweep(delta) : 0;
+		lane.lefts[i] = box.getLeft() - Math.max(dx, 0);
+		lane.rights[i] = box.getRight() - Math.min(dx, 0);
+		lane.tags[i] = sprite.getTags();
+	}
+
+	private static void sort(Lane lane) {
+		// sort by left edge, near linear on an almost sorted lane
+		if (lane.sorted) {
+			return;
+		}
+		lane.sorted = true;
+		Sprite[] sprites = lane.sprites;
+		float[] lefts = lane.lefts, rights = lane.rights;
+		int[] tags = lane.tags;
+		for (int i=1; i<lane.size; i++) {
+			Sprite sprite = sprites[i];
+			float left = lefts[i], right = rights[i];
+			int tag = tags[i];
+			int j = i - 1;
+			while (j >= 0 && lefts[j] > left) {
+				sprites[j + 1] = sprites[j];
+				lefts[j + 1] = lefts[j];
+				rights[j + 1] = rights[j];
+				tags[j + 1] = tags[j];
+				j--;
+			}
+			sprites[j + 1] = sprite;
+			lefts[j + 1] = left;
+			rights[j + 1] = right;
+			tags[j + 1] = tag;
+		}
+	}
+
+	private void sweep(Lane lane) {
+		// pair each sprite with those starting before it ends
+		for (int i=0; i<lane.size; i++) {
+			if (!takesPart(lane.tags[i])) {
+				continue;
+			}
+			float right = lane.rights[i];
+			for (int j=i+1; j<lane.size && lane.lefts[j] <= right; j++) {
+				addPair(lane, i, lane, j);
+			}
+		}
+	}
+
+	private void sweep(Lane upper, Lane lower) {
+		// merge two sorted lanes, pairing each sprite with those of the
+		// other lane starting between its own start and end
+		int i = 0, j = 0;
+		while (i < upper.size && j < lower.size) {
+			if (upper.lefts[i] <= lower.lefts[j]) {
+				float right = upper.rights[i];
+				for (int k=j; k<lower.size && lower.lefts[k] <= right; k++) {
+					addPair(upper, i, lower, k);
+				}
+				i++;
+			} else {
+				float right = lower.rights[j];
+				for (int k=i; k<upper.size && upper.lefts[k] <= right; k++) {
+					addPair(upper, k, lower, j);
+				}
+				j++;
+			}
+		}
+	}
+
+	private void probe(Rule rule) {
+		// pair the anchor with sprites of matching tags around it
+		scan(rule.anchor, rule.tagsB, found);
+		for (int i=0; i<found.size(); i++) {
+			addPair(rule.anchor, found.get(i));
+		}
+		found.clear();
+	}
+
+	private void scan(Sprite target, int tags, ArrayList<Sprite> out) {
+		// collect sprites of matching tags on the lanes around the target
+		// whose x intervals overlap its own
+		BoundingBox box = target.getBounds();
+		float left = box.getLeft(), right = box.getRight();
+		int lane = LaneIndex.laneOf(target.getY());
+		int top = Math.max(lane - LaneIndex.LANE_REACH, 0);
+		int bottom = Math.min(lane + LaneIndex.LANE_REACH, lanes.length - 1);
+		for (int l=top; l<=bottom; l++) {
+			refresh(l);
+		}
+		for (int l=top; l<=bottom; l++) {
+			Lane other = lanes[l];
+			sort(other);
+			for (int i=0; i<other.size && other.lefts[i] <= right; i++) {
+				if (other.rights[i] >= left && other.sprites[i] != target
+						&& matches(other.tags[i], tags)) {
+					out.add(other.sprites[i]);
+				}
+			}
+		}
+	}
+
+	private void addPair(Lane laneA, int a, Lane laneB, int b) {
+		// remember a pair some rule matches
+		if (matching[laneA.tags[a] << TAG_BITS | laneB.tags[b]]) {
+			addPair(laneA.sprites[a], laneB.sprites[b]);
+		}
+	}
+
+	private void addPair(Sprite a, Sprite b) {
+		// remember a pair, growing the arrays if needed
+		if (candidates == pairA.length) {
+			pairA = Arrays.copyOf(pairA, 2 * candidates);
+			pairB = Arrays.copyOf(pairB, 2 * candidates);
+		}
+		pairA[candidates] = a;
+		pairB[candidates] = b;
+		candidates++;
+	}
+
+	private boolean takesPart(int tags) {
+		// sprite with these tags may match some rule
+		return anyTags || (tags & ruleTags) != 0;
+	}
+
+	private void dispatch(int first, Rule anchoredRule) {
+		// pass the pairs found since the first to their rules, or to the
+		// anchored rule that found them
+		for (int i=first; i<candidates; i++) {
+			Sprite a = pairA[i], b = pairB[i];
+			if (anchoredRule == null) {
+				dispatch(a, b);
+			} else if (matches(b.getTags(), anchoredRule.tagsB)
+					&& meets(a, b, anchoredRule.sweptTags)) {
+				anchoredRule.handler.onCollision(a, b);
+			}
+			pairA[i] = pairB[i] = null;
+		}
+	}
+
+	private void dispatch(Sprite a, Sprite b) {
+		// pass pair to every rule it matches and meets, in the rule's 
+		// order; bounds are read now, as earlier handlers may move sprites
+		int tagsA = a.getTags(), tagsB = b.getTags();
+		for (int i=0; i<rules.size(); i++) {
+			Rule rule = rules.get(i);
+			if (matches(tagsA, rule.tagsA) && matches(tagsB, rule.tagsB)) {
+				if (meets(a, b, rule.sweptTags)) {
+					rule.handler.onCollision(a, b);
+				}
+			} else if (matches(tagsB, rule.tagsA) 
+					&& matches(tagsA, rule.tagsB)) {
+				if (meets(a, b, rule.sweptTags)) {
+					rule.handler.onCollision(b, a);
+				}
+			}
+		}
+	}
+
+	private boolean meets(Sprite a, Sprite b, int sweptTags) {
+		// touching now, or one passed through the other during the step
+		return a.collidesWith(b) || sweptTags != 0 
+				&& (passedThrough(a, b, sweptTags) 
+					|| passedThrough(b, a, sweptTags));
+	}
+
+	private boolean passedThrough(Sprite mover, Sprite other, 
+			int sweptTags) {
+		// moving object with a swept tag went through the other sprite;
+		// touching from the start was already caught by the last step,
+		// unless the other sprite (such as the player after a hop) only
+		// arrived during this one
+		if (!mover.hasAnyTag(sweptTags) || !(mover instanceof MovingObject)) {
+			return false;
+		}
+		float time = ((MovingObject) mover).timeOfImpact(other, delta);
+		return time > 0 || time == 0 && hasMoved(other);
+	}
+
+	private static boolean hasMoved(Sprite sprite) {
+		// sprite changed position during the last step
+		return sprite.getX() != sprite.getPrevX() 
+				|| sprite.getY() != sprite.getPrevY();
+	}
+
+	private static boolean matches(int tags, int ruleTags) {
+		// sprite has one of the rule's tags, or any sprite will do
+		return ruleTags == 0 || (tags & ruleTags) != 0;
+	}
+
+	private static void removeAt(Lane lane, int i) {
+		// remove a sprite, keeping the others in order
+		int moved = lane.size - i - 1;
+		System.arraycopy(lane.sprites, i + 1, lane.sprites, i, moved);
+		System.arraycopy(lane.lefts, i + 1, lane.lefts, i, moved);
+		System.arraycopy(lane.rights, i + 1, lane.rights, i, moved);
+		System.arraycopy(lane.tags, i + 1, lane.tags, i, moved);
+		lane.sprites[--lane.size] = null;
+	}
+}
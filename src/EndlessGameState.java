@@ -6,14 +6,17 @@
 import org.newdawn.slick.Color;
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
-import org.newdawn.slick.Input;
 import org.newdawn.slick.SlickException;
 import org.newdawn.slick.state.StateBasedGame;
 
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 
 /**
@@ -26,6 +29,9 @@ public class EndlessGameState extends State {
 	public static final int ID = 2;
 	/** Lower and upper bounds of world's y */
 	public static final float[] WORLD_Y = {96, 672};
+	/** number of lanes between the bounds */
+	public static final int LANES = 
+			(int) ((WORLD_Y[1] - WORLD_Y[0]) / App.TILE_SIZE) + 1;
 	/** player starting x position */
 	public static final float PLAYER_X = 504;
 	/** player starting y position */
@@ -46,6 +52,12 @@ public class EndlessGameState extends State {
 	public static final float COMMENT_X = 400;
 	/** comment's y position */
 	public static final float COMMENT_Y = 0;
+	/** file of comments, one per line for each early level */
+	public static final String COMMENT_FILE = "assets/levels/endless.txt";
+	
+	
+	/** Comments read from file, kept once read */
+	private static String[] comments;
 	
 	
 	/** The game world */
@@ -54,27 +66,56 @@ public class EndlessGameState extends State {
 	/** Singleton player */
 	private Player player;
 	
-	/** A single goal in endless mode */
-	private Goal goal;
-	
 	/** Current level */
 	private int level = 0;
 	
 	/** Comment to display for every level */
 	private String comment;
 	
+	/** Times the current level has been shuffled */
+	private int shuffles = 0;
+	
 	/** The level that is bonus level */
 	private int bonusLevel = BONUS_LEVEL;
 	
+	/** Builds the next level while current one is played */
+	private LevelPreloader preloader = new LevelPreloader();
+	
+	/** Level shown on screen */
+	private HudText levelText = createNumber("Level: ", 0, " (Endless)", 
+											Color.orange);
+	
+	/** Comment shown on screen */
+	private HudText commentText = createText(Color.cyan);
+	
 	
 	@Override
 	public void init(GameContainer gc, StateBasedGame sbg) 
 			throws SlickException {
 		// initialise
 		player = setupPlayer(PLAYER_X, PLAYER_Y);
-		goal = Goal.createGoal(GOAL_X, GOAL_Y);
 		comment = readComment();
-		world = initialiseWorld();
+		shuffles = 0;
+		
+		// use the world built in background during last level, if any
+		boolean bonus = level == bonusLevel;
+		World next = preloader.take(level);
+		if (next == null) {
+			next = createWorld(level, bonus, player);
+		}
+		if (bonus) {
+			// bonus level does not count as a level
+			level--;
+			bonusLevel *= bonusLevel;
+		}
+		replaceWorld(next);
+		
+		// build the following level while this one is played
+		int nextLevel = level + 1;
+		boolean nextBonus = nextLevel == bonusLevel;
+		Player player = this.player;
+		preloader.preload(nextLevel, 
+				() -> createWorld(nextLevel, nextBonus, player));
 	}
 
 	
@@ -85,8 +126,8 @@ public class EndlessGameState extends State {
 		world.update(gc, delta);
 		super.update(gc, sbg, delta);
 		
-		// special key to randomise the current level
-		if (gc.getInput().isKeyPressed(Input.KEY_SPACE)) {
+		// special key (SPACE) to randomise the current level
+		if (world.isShuffleRequested()) {
 			shuffleWorld();
 		}
 		
@@ -106,12 +147,21 @@ public class EndlessGameState extends State {
 			throws SlickException {
 		// render world and strings
 		world.render(g);
-		renderString("Level: "+(level+1)+" (Endless)", LEVEL_X, LEVEL_Y, 
-						Color.orange);
-		renderString(comment, COMMENT_X, COMMENT_Y, Color.cyan);
+		levelText.setNumber(level + 1);
+		levelText.render(LEVEL_X, LEVEL_Y);
+		commentText.setText(comment);
+		commentText.render(COMMENT_X, COMMENT_Y);
 		super.render(gc, sbg, g);
 	}
 	
+	@Override
+	public void leave(GameContainer gc, StateBasedGame sbg) 
+			throws SlickException {
+		// release textures of the current level
+		preloader.cancel();
+		world.dispose();
+	}
+	
 	@Override
 	public int getID() {
 		return ID;
@@ -126,79 +176,138 @@ public class EndlessGameState extends State {
 	}
 	
 	
-	private World initialiseWorld() {
-		// create world in endless game mode
-		if (level == bonusLevel) {
-			world = createBonusWorld();
-		} else {
-			world = createRandomWorld();
-		}
-		return world;
+	/** Create a world of endless mode (needs no display, so may run in
+	 * background).
+	 * @param level Endless level.
+	 * @param bonus Create the bonus level of extra lives?
+	 * @param player The player.
+	 * @return World World of the level.
+	 */
+	public static World createWorld(int level, boolean bonus, Player player)
+			throws SlickException {
+		return createWorld(level, bonus, 0, player);
 	}
 	
-	private World createRandomWorld() {
-		// create a random world
-		ArrayList<Sprite> sprites = createSprites();
-		World world = null;
-		try {
-			world = new World(player, sprites, new Goal[] {goal});
-		} catch (SlickException e) {
-			e.printStackTrace();
+	/** Create a world of endless mode, as shuffled by the player (needs no
+	 * display, so may run in background).
+	 * @param level Endless level.
+	 * @param bonus Create the bonus level of extra lives?
+	 * @param shuffle Times the level has been shuffled before.
+	 * @param player The player.
+	 * @return World World of the level.
+	 */
+	public static World createWorld(int level, boolean bonus, int shuffle,
+			Player player) throws SlickException {
+		String id = (bonus ? "bonus " : "endless ") + level
+					+ (shuffle > 0 ? " #" + shuffle : "");
+		
+		LevelLoadEvent event = new LevelLoadEvent();
+		event.begin();
+		long start = System.nanoTime();
+		ArrayList<Sprite> sprites = bonus ? createBonusSprites() 
+									: createRandomSprites(level, id);
+		long parsed = System.nanoTime() - start;
+		
+		Goal goal = Goal.createGoal(GOAL_X, GOAL_Y);
+		World world = new World(player, sprites, new Goal[] {goal});
+		world.setIdentity(id);
+		world.setShuffleable(true);
+		if (bonus) {
+			// create all the extra lives
+			for (int i=0; i<BONUS_LIVES; i++) {
+				world.createExtraLife();
+			}
+		}
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.level = bonus ? "endless bonus" : "endless " + level;
+			event.sprites = sprites.size();
+			event.parseDuration = parsed;
+			event.commit();
 		}
 		return world;
 	}
 
-	private ArrayList<Sprite> createSprites() {
-		// create sprites required for random world
+	private void replaceWorld(World next) {
+		// old world is released once textures of new one are loaded
+		next.setPredecessor(world);
+		world = next;
+		ReplaySession.enterWorld(world.getId());
+	}
+	
+	/** Create sprites required for a random world (needs no display).
+	 * Lanes are drawn in parallel on the common fork-join pool, each from
+	 * its own stream, and joined in lane order.
+	 * @param level Endless level, early levels have lanes of one type.
+	 * @param id Identity of the world, naming the streams of its lanes.
+	 * @return ArrayList<Sprite> Sprites of the world.
+	 */
+	public static ArrayList<Sprite> createRandomSprites(int level, String id)
+			throws SlickException {
+		ArrayList<Sprite> sprites = lanes()
+				.mapToObj(lane -> createRandomLane(level, laneY(lane),
+											GameRandom.lane(id, lane)))
+				.collect(ArrayList::new, ArrayList::addAll, ArrayList::addAll);
+		LevelTemplate.get("endless").addSprites(sprites);
+		return sprites;
+	}
+	
+	/** Create sprites required for the bonus world, apart from its extra
+	 * lives (needs no display). Lanes of water are laid in parallel and
+	 * joined in lane order.
+	 * @return ArrayList<Sprite> Sprites of the world.
+	 */
+	public static ArrayList<Sprite> createBonusSprites() 
+			throws SlickException {
+		ArrayList<Sprite> sprites = lanes()
+				.mapToObj(lane -> createWaterLane(laneY(lane)))
+				.collect(ArrayList::new, ArrayList::addAll, ArrayList::addAll);
+		LevelTemplate.get("endless").addSprites(sprites);
+		//create some logs for fun
+		LevelTemplate.get("bonus").addSprites(sprites);
+		return sprites;
+	}
+	
+	private static IntStream lanes() {
+		// indices of lanes, in parallel if the pool has more than one thread
+		IntStream lanes = IntStream.range(0, LANES);
+		return ForkJoinPool.getCommonPoolParallelism() > 1 
+				? lanes.parallel() : lanes;
+	}
+	
+	private static float laneY(int lane) {
+		// y position of a lane
+		return WORLD_Y[0] + lane * App.TILE_SIZE;
+	}
+	
+	private static ArrayList<Sprite> createWaterLane(float y) {
+		// a lane of water tiles only
 		ArrayList<Sprite> sprites = new ArrayList<>();
-		
-		for (float y=WORLD_Y[0]; y<=WORLD_Y[1]; y+=App.TILE_SIZE) {
-			sprites.addAll(createRandomLane(y));
+		float[] xs = new float[App.SCREEN_WIDTH / App.TILE_SIZE + 1];
+		for (int i=0; i<xs.length; i++) {
+			xs[i] = i * App.TILE_SIZE;
 		}
-		sprites.addAll(readCsv("endless"));
+		SpritePool.obtain(SpriteType.WATER, xs, y, false, sprites);
 		return sprites;
 	}
 	
-	private ArrayList<Sprite> createRandomLane(float y) {
+	private static ArrayList<Sprite> createRandomLane(int level, float y,
+			SplittableRandom random) {
 		// draw a random lane
 		RandomLane randomLane;
 		if (level < RANDOM_START) {
-			randomLane = new RandomLane(level, y);
+			randomLane = new RandomLane(level, y, random);
 		} else {
-			randomLane = new RandomLane(y);
+			randomLane = new RandomLane(y, random);
 		}
 		return randomLane.getSprites();
 	}
 	
 	
-	private World createBonusWorld() {
-		// method to create bonus level of extra lives
-		ArrayList<Sprite> sprites = new ArrayList<>();
-		for (float y=WORLD_Y[0]; y<=WORLD_Y[1]; y+=App.TILE_SIZE) {
-			for (float x=0; x<=App.SCREEN_WIDTH; x+=App.TILE_SIZE) {
-				sprites.add(Tile.createWaterTile(x, y));
-			}
-		}
-		sprites.addAll(readCsv("endless"));
-		//create some logs for fun
-		sprites.addAll(readCsv("bonus"));
-		try {
-			world = new World(player, sprites, new Goal[] {goal});
-		} catch (SlickException e) {
-			e.printStackTrace();
-		}
-		level--;
-		bonusLevel *= bonusLevel;
-		// create all the extra lives
-		for (int i=0; i<BONUS_LIVES; i++) {
-			world.createExtraLife();
-		}
-		return world;
-	}
-	
-	private void shuffleWorld() {
-		// randomise current level
-		world = initialiseWorld();
+	private void shuffleWorld() throws SlickException {
+		// randomise current level, the player staying where it is
+		replaceWorld(createWorld(level, false, ++shuffles, player));
 	}
 	
 	private String readComment() {
@@ -206,24 +315,23 @@ public class EndlessGameState extends State {
 		if (level == bonusLevel) {
 			return BONUS_COMMENT;
 		} else if (level < RANDOM_START) {
-			return readFromFile("assets/levels/endless.txt", level);
+			return readFromFile(level);
 		} else {
-			return readFromFile("assets/levels/endless.txt", RANDOM_START);
+			return readFromFile(RANDOM_START);
 		}
 	}
 	
-	private String readFromFile(String infile, int index) {
-		// read (index)th String from a file
-		String line = null;
-		try (BufferedReader br =
-				new BufferedReader(new FileReader(infile))) {
-			for (int i=0; i<index; i++) {
-				br.readLine();
+	private static synchronized String readFromFile(int index) {
+		// (index)th line of comment file, which is read only once
+		if (comments == null) {
+			try {
+				comments = Files.readAllLines(Paths.get(COMMENT_FILE))
+							.toArray(new String[0]);
+			} catch (IOException e) {
+				e.printStackTrace();
+				comments = new String[0];
 			}
-			line = br.readLine();
-		} catch (Exception e) {
-			e.printStackTrace();
 		}
-		return line;
+		return index < comments.length ? comments[index] : null;
 	}
 }
@@ -3,7 +3,6 @@
  * by Xuanken Tay, University of Melbourne
  */
 
-import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.SlickException;
 
 /**
@@ -50,7 +49,7 @@ public class ExtraLife extends Sprite {
 	
 	
 	@Override
-	public void update(GameContainer gc, int delta) throws SlickException {
+	public void update(InputSource input, int delta) throws SlickException {
 		// unlike sprite, extra life can move
 		
 		timeLastMoved += delta * App.MILLISECOND;
@@ -85,7 +84,7 @@ public class ExtraLife extends Sprite {
 	
 	private ExtraLife(String imgPath, float x, float y,
 			WaterTransport log) {
-		super(imgPath, x, y);
+		super(imgPath, x, y, new Tag[] {PICKUP});
 		this.onLog = log;
 	}
 	
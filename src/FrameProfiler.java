@@ -0,0 +1,229 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.Image;
+import org.newdawn.slick.opengl.Texture;
+
+
+/**
+ * Per-frame timing of the phases of the game loop, with draw call and
+ * texture bind counts, kept for a rolling window of recent frames.
+ * Nothing is measured while profiling is disabled.
+ * Must only be used on the game thread.
+ */
+public final class FrameProfiler {
+	/** number of frames kept */
+	public static final int HISTORY = 120;
+
+
+	/** Measured phases of a frame */
+	public enum Phase {
+		INPUT("input"), PLAYER("player"), SPRITES("sprites"),
+		COLLISION("collision"), FLOATING("floating"), RULES("rules"),
+		RENDER("render");
+
+		/** name shown on the overlay */
+		private final String label;
+
+		private Phase(String label) {
+			this.label = label;
+		}
+
+		/** Get the name of the phase.
+		 * @return String Name shown on the overlay.
+		 */
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	/** number of measured phases */
+	public static final int PHASES = Phase.values().length;
+
+
+	/** are frames measured */
+	private static boolean enabled = false;
+
+	/** time spent in each phase during the current frame (ns) */
+	private static long[] current = new long[PHASES];
+
+	/** time spent in each phase during recent frames (ns) */
+	private static long[][] phaseTimes = new long[HISTORY][PHASES];
+
+	/** total time of recent frames (ns) */
+	private static long[] frameTimes = new long[HISTORY];
+
+	/** slot of the next frame in the history */
+	private static int head = 0;
+
+	/** end of the previous frame (ns) */
+	private static long lastFrameEnd = 0;
+
+	/** draw calls, texture binds, sprites and culled sprites of the current
+	 * frame */
+	private static int draws, binds, sprites, culled;
+
+	/** draw calls, texture binds, sprites and culled sprites of the last
+	 * complete frame */
+	private static int lastDraws, lastBinds, lastSprites, lastCulled;
+
+	/** texture of the previous draw call */
+	private static Texture lastTexture;
+
+
+	/** Switch profiling on or off, clearing all history.
+	 * @param enabled Measure frames?
+	 */
+	public static void setEnabled(boolean enabled) {
+		FrameProfiler.enabled = enabled;
+		for (int i=0; i<HISTORY; i++) {
+			frameTimes[i] = 0;
+			for (int p=0; p<PHASES; p++) {
+				phaseTimes[i][p] = 0;
+			}
+		}
+		lastFrameEnd = 0;
+		resetFrame();
+	}
+
+	/** Check if frames are measured.
+	 * @return boolean Is profiling on?
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/** Start timing a phase.
+	 * @return long Start time, to be passed to stop.
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/** Stop timing a phase, adding its time to the current frame.
+	 * @param phase Phase being timed.
+	 * @param start Start time returned by start.
+	 */
+	public static void stop(Phase phase, long start) {
+		if (enabled) {
+			current[phase.ordinal()] += System.nanoTime() - start;
+		}
+	}
+
+	/** Count a draw call, and a texture bind if its texture differs from
+	 * the previous draw call's.
+	 * @param image Image being drawn.
+	 */
+	public static void countDraw(Image image) {
+		if (!enabled) {
+			return;
+		}
+		draws++;
+		Texture texture = image.getTexture();
+		if (texture != lastTexture) {
+			binds++;
+			lastTexture = texture;
+		}
+	}
+
+	/** Count a sprite skipped without drawing, being hidden or out of
+	 * view.
+	 */
+	public static void countCulled() {
+		if (enabled) {
+			culled++;
+		}
+	}
+
+	/** Set number of sprites in the frame.
+	 * @param count Number of sprites.
+	 */
+	public static void setSprites(int count) {
+		sprites = count;
+	}
+
+	/** Finish the current frame, moving its measurements to the history. */
+	public static void endFrame() {
+		if (!enabled) {
+			return;
+		}
+		long now = System.nanoTime();
+		frameTimes[head] = lastFrameEnd == 0 ? 0 : now - lastFrameEnd;
+		System.arraycopy(current, 0, phaseTimes[head], 0, PHASES);
+		lastFrameEnd = now;
+		head = (head + 1) % HISTORY;
+
+		lastDraws = draws;
+		lastBinds = binds;
+		lastSprites = sprites;
+		lastCulled = culled;
+		resetFrame();
+	}
+
+	/** Get total time of a recent frame.
+	 * @param ago Frames before the last complete frame (0 for the last).
+	 * @return long Frame time (ns), or 0 if not measured.
+	 */
+	public static long getFrameTime(int ago) {
+		return frameTimes[slot(ago)];
+	}
+
+	/** Get time spent in a phase during a recent frame.
+	 * @param ago Frames before the last complete frame (0 for the last).
+	 * @param phase Phase of interest.
+	 * @return long Phase time (ns).
+	 */
+	public static long getPhaseTime(int ago, Phase phase) {
+		return phaseTimes[slot(ago)][phase.ordinal()];
+	}
+
+	/** Get draw calls of the last complete frame.
+	 * @return int Draw calls.
+	 */
+	public static int getDraws() {
+		return lastDraws;
+	}
+
+	/** Get texture binds of the last complete frame.
+	 * @return int Texture binds.
+	 */
+	public static int getBinds() {
+		return lastBinds;
+	}
+
+	/** Get sprites skipped without drawing in the last complete frame.
+	 * @return int Culled sprites.
+	 */
+	public static int getCulled() {
+		return lastCulled;
+	}
+
+	/** Get sprites of the last complete frame.
+	 * @return int Sprites in the world.
+	 */
+	public static int getSprites() {
+		return lastSprites;
+	}
+
+
+	private static int slot(int ago) {
+		// history slot of a frame, counting back from the last one
+		return ((head - 1 - ago) % HISTORY + HISTORY) % HISTORY;
+	}
+
+	private static void resetFrame() {
+		// clear measurements of the current frame
+		for (int p=0; p<PHASES; p++) {
+			current[p] = 0;
+		}
+		draws = 0;
+		binds = 0;
+		culled = 0;
+		lastTexture = null;
+	}
+
+	private FrameProfiler() {
+	}
+}
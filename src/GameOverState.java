@@ -66,17 +66,21 @@ public class GameOverState extends State {
 	private int lastLevel;
 	/** timer used for toggling images */
 	private float imageTimer = 0;
+	/** comment on time taken */
+	private HudText commentText = createText(Color.white);
+	/** score of levels passed and time taken */
+	private HudText scoreText = createText(Color.cyan);
 	
 	
 	@Override
 	public void init(GameContainer gc, StateBasedGame sbg) 
 			throws SlickException {
-		// create all images
-		sadFrog1 = new Image(SADFROG_1);
-		sadFrog2 = new Image(SADFROG_2);
+		// get all images, regions of the atlas when packed
+		sadFrog1 = TextureCache.acquire(SADFROG_1);
+		sadFrog2 = TextureCache.acquire(SADFROG_2);
 		showing = sadFrog1;
-		boilingFrog = new Image(BOILING_FROG_IMG);
-		gameOver=  new Image(GAMEOVER_IMG);
+		boilingFrog = TextureCache.acquire(BOILING_FROG_IMG);
+		gameOver = TextureCache.acquire(GAMEOVER_IMG);
 	}
 
 	
@@ -84,7 +88,7 @@ public class GameOverState extends State {
 	@Override
 	public void update(GameContainer gc, StateBasedGame sbg, int delta) 
 			throws SlickException {
-		
+		updateOverlay(gc);
 		imageTimer += delta * App.MILLISECOND;
 		if (imageTimer > CHANGE_PERIOD) {
 			toggleImage();
@@ -92,6 +96,8 @@ public class GameOverState extends State {
 		}
 		Input input = gc.getInput();
 		if (input.isKeyPressed(Input.KEY_ENTER)) {
+			// the game is closed without leaving this state
+			releaseImages();
 			gc.exit();
 		}
 		
@@ -100,14 +106,26 @@ public class GameOverState extends State {
 	@Override
 	public void render(GameContainer gc, StateBasedGame sbg, Graphics g) 
 			throws SlickException {
-		// render all images
-		gameOver.draw(GAME_OVER[0], GAME_OVER[1], GAME_OVER[2]);
-		boilingFrog.draw(BOILING_FROG[0], BOILING_FROG[1], BOILING_FROG[2]);
-		
-		showing.draw(SAD_FROGS[0], SAD_FROGS[1], SAD_FROGS[2]);
+		// render all images, unless released on exit
+		if (gameOver != null) {
+			gameOver.draw(GAME_OVER[0], GAME_OVER[1], GAME_OVER[2]);
+			boilingFrog.draw(BOILING_FROG[0], BOILING_FROG[1], 
+							BOILING_FROG[2]);
+			
+			showing.draw(SAD_FROGS[0], SAD_FROGS[1], SAD_FROGS[2]);
+		}
 		
-		drawText(0, 0);
-		drawScore(SCORE_X, SCORE_Y);
+		commentText.render(0, 0);
+		scoreText.render(SCORE_X, SCORE_Y);
+		// no total time, as the comment takes its place
+		renderOverlay(gc, g);
+	}
+	
+	@Override
+	public void leave(GameContainer gc, StateBasedGame sbg) 
+			throws SlickException {
+		// release images of the screen
+		releaseImages();
 	}
 
 	@Override
@@ -120,15 +138,30 @@ public class GameOverState extends State {
 	 */
 	public void setLastLevel(int level) {
 		lastLevel = level;
+		// time and history are passed on by now, so text is final
+		layoutText();
+		layoutScore();
 	}
 	
 	
+	private void releaseImages() {
+		// release the images acquired in init, once only
+		if (gameOver == null) {
+			return;
+		}
+		TextureCache.release(SADFROG_1);
+		TextureCache.release(SADFROG_2);
+		TextureCache.release(BOILING_FROG_IMG);
+		TextureCache.release(GAMEOVER_IMG);
+		gameOver = sadFrog1 = sadFrog2 = boilingFrog = showing = null;
+	}
+	
 	private void toggleImage() {
-		showing = showing.equals(sadFrog1) ? sadFrog2 : sadFrog1;
+		showing = showing == sadFrog1 ? sadFrog2 : sadFrog1;
 	}
 
-	private void drawText(float x, float y) {
-		// draw the comment on screen
+	private void layoutText() {
+		// set the comment on screen
 		String text;
 		if (getTime() == 0) {
 			text = NULL_COMMENT;
@@ -136,11 +169,11 @@ public class GameOverState extends State {
 			text = String.format(TIME_COMMENT, getTime());
 			text += LAST_COMMENT;
 		}
-		renderString(text, x, y, Color.white);
+		commentText.setText(text);
 	}
 	
-	private void drawScore(float x, float y) {
-		// draw score of levels passed and time taken
+	private void layoutScore() {
+		// set score of levels passed and time taken
 		if (getTime() == 0) {
 			return;
 		}
@@ -153,7 +186,7 @@ public class GameOverState extends State {
 			score += score.isEmpty() ? "Endless" : "+Endless";
 		}
 		score += String.format(": level %d, %.1fs", lastLevel, getTime());
-		renderString("Score \n" + score, x, y, Color.cyan);
+		scoreText.setText("Score \n" + score);
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+
+/**
+ * Source of all game randomness. Each world has its own streams, one per
+ * lane and one per subsystem, derived from the session seed, the game
+ * number and the stream's name. No stream is shared between lanes or
+ * threads, so a world comes out the same for a given seed whichever
+ * thread builds it and in whatever order.
+ */
+public final class GameRandom {
+	/** command-line option setting the seed */
+	public static final String SEED_OPTION = "--seed";
+	/** name of the stream placing extra lives */
+	public static final String EXTRA_LIFE = "extra life";
+	/** name of the stream of a lane, followed by its index */
+	public static final String LANE = "lane ";
+
+
+	/** seed of the session (read by worker threads drawing lanes) */
+	private static volatile long seed = new SplittableRandom().nextLong();
+
+	/** number of games started in the session (one per visit of the menu,
+	 * only changed on the game's thread) */
+	private static volatile int game = 0;
+
+
+	/** Set the seed of the session. Must be set before any world is built.
+	 * @param seed Seed of all streams.
+	 */
+	public static void setSeed(long seed) {
+		GameRandom.seed = seed;
+		GameRandom.game = 0;
+	}
+
+	/** Get the seed of the session.
+	 * @return long Seed of all streams.
+	 */
+	public static long getSeed() {
+		return seed;
+	}
+
+	/** Set the seed from a "--seed n" option on the command line, if any.
+	 * @param args Command-line arguments.
+	 * @return String[] The other arguments.
+	 */
+	public static String[] parseSeed(String[] args) {
+		ArrayList<String> others = new ArrayList<>();
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals(SEED_OPTION) && i+1 < args.length) {
+				setSeed(Long.parseLong(args[++i]));
+			} else {
+				others.add(args[i]);
+			}
+		}
+		return others.toArray(new String[others.size()]);
+	}
+
+	/** Start a new game, so its worlds differ from the previous game's. */
+	public static void newGame() {
+		game++;
+	}
+
+
+	/** Create a stream of a world.
+	 * @param world Identity of the world, unique within a game.
+	 * @param stream Name of the stream, unique within the world.
+	 * @return SplittableRandom Stream, independent of all others.
+	 */
+	public static SplittableRandom create(String world, String stream) {
+		long h = mix(seed + game);
+		h = mix(h, world);
+		h = mix(h ^ '/');
+		h = mix(h, stream);
+		return new SplittableRandom(h);
+	}
+
+	/** Create the stream of a lane of a world.
+	 * @param world Identity of the world, unique within a game.
+	 * @param lane Index of the lane.
+	 * @return SplittableRandom Stream of the lane.
+	 */
+	public static SplittableRandom lane(String world, int lane) {
+		return create(world, LANE + lane);
+	}
+
+
+	private static long mix(long h, String text) {
+		// fold the characters of text into h
+		for (int i=0; i<text.length(); i++) {
+			h = mix(h ^ text.charAt(i));
+		}
+		return h;
+	}
+
+	private static long mix(long z) {
+		// scramble bits of z (finaliser of SplitMix64)
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private GameRandom() {
+	}
+}
@@ -3,9 +3,6 @@
  * by Xuanken Tay, University of Melbourne
  */
 
-import org.newdawn.slick.Graphics;
-import org.newdawn.slick.SlickException;
-
 
 /**
  * Represent a goal to be filled in. Inherits from Sprite.
@@ -29,11 +26,9 @@ public class Goal extends Sprite {
 	
 
 	@Override
-	public void render(Graphics g) throws SlickException {
-		// only render filled goal
-		if (filled) {
-			super.render(g);
-		}
+	public boolean isVisible() {
+		// only filled goal is shown
+		return filled;
 	}
 	
 	/** Method to fill goal with player.
@@ -0,0 +1,107 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.SlickException;
+
+import java.util.ArrayList;
+
+
+/**
+ * Runs the game rules without a display or game container.
+ * A World is built from a level file using image dimensions only, then
+ * stepped as fast as possible with key presses read from a script.
+ * No LWJGL native library is needed.
+ * 
+ * Usage: java HeadlessGame [--seed n] level frames [delta] [script]
+ */
+public class HeadlessGame {
+	/** default time passed per frame (milliseconds) */
+	public static final int DEFAULT_DELTA = 16;
+	/** player starting x position */
+	public static final float PLAYER_X = NormalGameState.PLAYER_X;
+	/** player starting y position */
+	public static final float PLAYER_Y = NormalGameState.PLAYER_Y;
+	
+	
+	/** Start-up method. Runs a level headless and reports the outcome.
+	 * @param args Seed (optional), level, number of frames, delta and 
+	 * script (optional).
+	 */
+	public static void main(String[] args) throws SlickException {
+		args = GameRandom.parseSeed(args);
+		if (args.length < 2) {
+			System.err.println("Usage: java HeadlessGame [--seed n] "
+					+ "level frames [delta] [script]");
+			System.exit(1);
+		}
+		String level = args[0];
+		int frames = Integer.parseInt(args[1]);
+		int delta = args.length > 2 ? Integer.parseInt(args[2]) 
+									: DEFAULT_DELTA;
+		ScriptedInput input = args.length > 3 
+				? ScriptedInput.readScript(args[3])
+				: new ScriptedInput(new int[0], new int[0]);
+		
+		World world = createWorld(level);
+		long start = System.nanoTime();
+		int played = run(world, input, frames, delta);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		
+		System.out.printf("level %s: %d frames in %.3fs (%.0f frames/s)%n",
+				level, played, seconds, played / seconds);
+		System.out.printf("seed %d, lives %d, level completed %b, "
+				+ "game over %b%n", GameRandom.getSeed(),
+				Player.getPlayer().getLives(), world.isLevelCompleted(),
+				world.isGameOver());
+	}
+	
+	
+	/** Build a world from a level file without loading any image.
+	 * @param level The level or string indicating which csv to read from.
+	 * @return World World of the level, with a freshly reset player.
+	 */
+	public static World createWorld(String level) throws SlickException {
+		Player player = resetPlayer(PLAYER_X, PLAYER_Y);
+		LevelTemplate template = LevelTemplate.get(level);
+		ArrayList<Sprite> sprites = template.createSprites();
+		Goal[] goals = template.createGoals();
+		return new World(player, sprites, goals);
+	}
+	
+	
+	/** Switch to headless mode and reset the singleton player.
+	 * @param x Starting x position of player.
+	 * @param y Starting y position of player.
+	 * @return Player The singleton player.
+	 */
+	public static Player resetPlayer(float x, float y) {
+		TextureCache.setHeadless(true);
+		Player player = Player.createPlayer(x, y);
+		player.setRespawnPosition(x, y);
+		player.respawn();
+		player.setLives(Player.PLAYER_LIVES);
+		return player;
+	}
+	
+	
+	/** Step a world until the level ends or frames run out.
+	 * @param world World to be stepped.
+	 * @param input Scripted key presses.
+	 * @param frames Maximum number of frames.
+	 * @param delta Time passed per frame (milliseconds).
+	 * @return int Number of frames played.
+	 */
+	public static int run(World world, ScriptedInput input, int frames, 
+			int delta) throws SlickException {
+		int frame = 0;
+		while (frame < frames && !world.isLevelCompleted() 
+				&& !world.isGameOver()) {
+			input.advance();
+			world.update(input, delta);
+			frame++;
+		}
+		return frame;
+	}
+}
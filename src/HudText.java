@@ -0,0 +1,151 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.TrueTypeFont;
+
+
+/**
+ * A piece of text on the HUD, laid out only when its value changes.
+ * Plain text is split into lines once per new value. A number field
+ * (prefix, number, suffix) writes its digits into a reused buffer and
+ * builds the string it draws once per new shown value, so neither kind
+ * allocates anything while its value stays the same.
+ */
+public class HudText {
+	/** longest number written (digits of a long, sign and point) */
+	private static final int MAX_CHARS = 24;
+
+
+	/** font the text is drawn in */
+	private final TrueTypeFont font;
+
+	/** colour the text is drawn in */
+	private final Color color;
+
+	/** current plain text (or null) */
+	private String text;
+
+	/** lines of the current plain text */
+	private String[] lines = new String[0];
+
+	/** is this a number field */
+	private final boolean isNumber;
+
+	/** text before the number */
+	private String prefix;
+
+	/** text after the number */
+	private String suffix;
+
+	/** digits after the decimal point */
+	private int decimals;
+
+	/** powers of ten to scale the number by */
+	private long scale;
+
+	/** current number, scaled to a whole number */
+	private long scaled = Long.MIN_VALUE;
+
+	/** buffer the number is written into, from the end backwards */
+	private final char[] chars = new char[MAX_CHARS];
+
+	/** whole text of the current number (or null before the first) */
+	private String shown;
+
+
+	/** Constructor of plain text, possibly of several lines.
+	 * @param font Font to draw with.
+	 * @param color Colour to draw with.
+	 */
+	public HudText(TrueTypeFont font, Color color) {
+		this.font = font;
+		this.color = color;
+		this.isNumber = false;
+	}
+
+	/** Constructor of a number field.
+	 * @param font Font to draw with.
+	 * @param color Colour to draw with.
+	 * @param prefix Text before the number.
+	 * @param decimals Digits shown after the decimal point.
+	 * @param suffix Text after the number.
+	 */
+	public HudText(TrueTypeFont font, Color color, String prefix,
+			int decimals, String suffix) {
+		this.font = font;
+		this.color = color;
+		this.isNumber = true;
+		this.prefix = prefix;
+		this.suffix = suffix;
+		this.decimals = decimals;
+		this.scale = 1;
+		for (int i=0; i<decimals; i++) {
+			scale *= 10;
+		}
+	}
+
+
+	/** Set the plain text, laying it out if it changed.
+	 * @param text Text, lines separated by "\n" (null for none).
+	 */
+	public void setText(String text) {
+		if (text == this.text || text != null && text.equals(this.text)) {
+			return;
+		}
+		this.text = text;
+		this.lines = text == null ? new String[0] : text.split("\n");
+	}
+
+	/** Set the number of a number field, rewriting its digits if the shown
+	 * value changed.
+	 * @param value Number to show, rounded to the field's decimals.
+	 */
+	public void setNumber(double value) {
+		long scaled = Math.round(value * scale);
+		if (scaled == this.scaled) {
+			return;
+		}
+		this.scaled = scaled;
+
+		// write numerals right to left
+		int i = MAX_CHARS;
+		long rest = Math.abs(scaled);
+		for (int d=0; d<decimals; d++) {
+			chars[--i] = (char) ('0' + rest % 10);
+			rest /= 10;
+		}
+		if (decimals > 0) {
+			chars[--i] = '.';
+		}
+		do {
+			chars[--i] = (char) ('0' + rest % 10);
+			rest /= 10;
+		} while (rest > 0);
+		if (scaled < 0) {
+			chars[--i] = '-';
+		}
+		shown = prefix + new String(chars, i, MAX_CHARS - i) + suffix;
+	}
+
+
+	/** Draw the text.
+	 * @param x X position of the top left corner.
+	 * @param y Y position of the top left corner.
+	 */
+	public void render(float x, float y) {
+		if (!isNumber) {
+			for (String line : lines) {
+				font.drawString(x, y, line, color);
+				y += font.getHeight();
+			}
+			return;
+		}
+
+		if (shown != null) {
+			font.drawString(x, y, shown, color);
+		}
+	}
+}
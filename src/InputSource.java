@@ -0,0 +1,30 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.Input;
+
+
+/**
+ * Source of key presses consumed by the game rules. Decouples the world
+ * from Slick's input, so it can also be driven by a script.
+ */
+public interface InputSource {
+	
+	/** Check if a key has been pressed since last checked. As with Slick's
+	 * Input, a press is consumed by the query.
+	 * @param key Key code (from org.newdawn.slick.Input).
+	 * @return boolean Was key pressed?
+	 */
+	boolean isKeyPressed(int key);
+	
+	
+	/** Create an input source reading from Slick's input.
+	 * @param input The Slick input.
+	 * @return InputSource Input source.
+	 */
+	static InputSource of(Input input) {
+		return input::isKeyPressed;
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import java.util.ArrayList;
+
+
+/**
+ * Spatial index of sprites bucketed by lane (rows of tiles).
+ * Each bucket is kept sorted by x position, so queries only visit the
+ * sprites horizontally close to the target on its lane and the
+ * neighbouring lanes.
+ */
+public class LaneIndex {
+	/** number of lanes covering the screen */
+	public static final int LANES = App.SCREEN_HEIGHT / App.TILE_SIZE + 1;
+	/** lanes either side of target's lane that are searched */
+	public static final int LANE_REACH = 1;
+
+
+	/** A single lane of sprites, sorted by x position */
+	private static class Bucket {
+		/** sprites on the lane */
+		private ArrayList<Sprite> sprites = new ArrayList<>();
+		/** half width of widest sprite on the lane */
+		private float maxHalfWidth;
+	}
+
+
+	/** All lanes, top to bottom */
+	private Bucket[] buckets = new Bucket[LANES];
+
+
+	/** Constructor.
+	 * @param sprites Sprites to be indexed.
+	 */
+	public LaneIndex(ArrayList<Sprite> sprites) {
+		for (int i=0; i<LANES; i++) {
+			buckets[i] = new Bucket();
+		}
+		for (Sprite sprite : sprites) {
+			add(sprite);
+		}
+	}
+
+
+	/** Get the lane of a y position.
+	 * @param y Y position.
+	 * @return int Lane index (clamped to screen).
+	 */
+	public static int laneOf(float y) {
+		int lane = (int) Math.floor(y / App.TILE_SIZE);
+		return Math.max(0, Math.min(LANES - 1, lane));
+	}
+
+
+	/** Add a sprite to the index.
+	 * @param sprite Sprite to be added.
+	 */
+	public void add(Sprite sprite) {
+		Bucket bucket = buckets[laneOf(sprite.getY())];
+		ArrayList<Sprite> lane = bucket.sprites;
+
+		// insert at sorted position
+		int i = lowerBound(lane, sprite.getX());
+		lane.add(i, sprite);
+		bucket.maxHalfWidth = Math.max(bucket.maxHalfWidth,
+								sprite.getWidth()/2);
+	}
+
+
+	/** Remove a sprite from the index.
+	 * @param sprite Sprite to be removed.
+	 */
+	public void remove(Sprite sprite) {
+		buckets[laneOf(sprite.getY())].sprites.remove(sprite);
+	}
+
+
+	/** Restore x ordering after sprites have moved. Lanes barely reorder
+	 * between frames (only when a sprite wraps around), so an insertion
+	 * sort is close to linear.
+	 */
+	public void refresh() {
+		for (Bucket bucket : buckets) {
+			ArrayList<Sprite> lane = bucket.sprites;
+			for (int i=1; i<lane.size(); i++) {
+				Sprite sprite = lane.get(i);
+				float x = sprite.getX();
+				int j = i - 1;
+				while (j >= 0 && lane.get(j).getX() > x) {
+					lane.set(j + 1, lane.get(j));
+					j--;
+				}
+				lane.set(j + 1, sprite);
+			}
+		}
+	}
+
+
+	/** Collect sprites that may overlap the target, from the target's lane
+	 * and its neighbours.
+	 * @param target Sprite of interest.
+	 * @param out List the candidates are appended to.
+	 */
+	public void query(Sprite target, ArrayList<Sprite> out) {
+		int lane = laneOf(target.getY());
+		int first = Math.max(0, lane - LANE_REACH);
+		int last = Math.min(LANES - 1, lane + LANE_REACH);
+		float x = target.getX();
+		float halfWidth = target.getWidth()/2;
+
+		for (int l=first; l<=last; l++) {
+			Bucket bucket = buckets[l];
+			ArrayList<Sprite> sprites = bucket.sprites;
+			float reach = halfWidth + bucket.maxHalfWidth;
+			float maxX = x + reach;
+
+			for (int i=lowerBound(sprites, x - reach); i<sprites.size(); i++) {
+				Sprite sprite = sprites.get(i);
+				if (sprite.getX() > maxX) {
+					break;
+				}
+				out.add(sprite);
+			}
+		}
+	}
+
+
+	private static int lowerBound(ArrayList<Sprite> lane, float x) {
+		// first position in lane with x position not less than x
+		int lo = 0, hi = lane.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (lane.get(mid).getX() < x) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.SlickException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+
+/**
+ * Compiles level csv files into a compact binary form, which the game
+ * memory-maps instead of parsing text.
+ * 
+ * A compiled level holds (big endian): magic, version, a table of the
+ * sprite type names used, then one 9 byte record per sprite of type index
+ * (with direction in the top bit), x and y as floats.
+ * 
+ * Usage: java LevelCompiler [level ...] (all levels if none given)
+ */
+public class LevelCompiler {
+	/** bytes of one sprite record */
+	public static final int RECORD_BYTES = 1 + 2 * Float.BYTES;
+	
+	
+	/** Start-up method. Compiles levels.
+	 * @param args Levels to compile, e.g. "0" (all levels if none given).
+	 */
+	public static void main(String[] args) throws SlickException {
+		ArrayList<String> levels = new ArrayList<>();
+		if (args.length > 0) {
+			for (String level : args) {
+				levels.add(level);
+			}
+		} else {
+			File[] files = new File(LevelLoader.LEVEL_DIR).listFiles(
+					(dir, name) -> name.endsWith(LevelLoader.LEVEL_EXT));
+			if (files != null) {
+				for (File file : files) {
+					String name = file.getName();
+					levels.add(name.substring(0, 
+							name.length() - LevelLoader.LEVEL_EXT.length()));
+				}
+			}
+		}
+		
+		for (String level : levels) {
+			String prefix = LevelLoader.LEVEL_DIR + level;
+			int count = compile(prefix + LevelLoader.LEVEL_EXT, 
+							prefix + LevelLoader.COMPILED_EXT);
+			System.out.println("compiled " + prefix + LevelLoader.LEVEL_EXT
+					+ " (" + count + " sprites)");
+		}
+	}
+	
+	
+	/** Compile a level csv.
+	 * @param infile Path to the csv.
+	 * @param outfile Path to the compiled level.
+	 * @return int Number of sprite records written.
+	 */
+	public static int compile(String infile, String outfile) 
+			throws SlickException {
+		// read all records, building the table of types in order of use
+		ArrayList<SpriteType> types = new ArrayList<>();
+		ArrayList<Integer> tags = new ArrayList<>();
+		ArrayList<float[]> positions = new ArrayList<>();
+		LevelLoader.parseCsv(infile, (type, x, y, moveRight) -> {
+			int index = types.indexOf(type);
+			if (index < 0) {
+				index = types.size();
+				types.add(type);
+			}
+			tags.add(moveRight ? index | LevelLoader.DIRECTION_BIT : index);
+			positions.add(new float[] {x, y});
+		});
+		
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(outfile)))) {
+			out.writeInt(LevelLoader.MAGIC);
+			out.writeInt(LevelLoader.VERSION);
+			out.writeShort(types.size());
+			for (SpriteType type : types) {
+				byte[] name = type.getLevelName()
+						.getBytes(StandardCharsets.US_ASCII);
+				out.writeShort(name.length);
+				out.write(name);
+			}
+			out.writeInt(tags.size());
+			for (int i=0; i<tags.size(); i++) {
+				out.writeByte(tags.get(i));
+				out.writeFloat(positions.get(i)[0]);
+				out.writeFloat(positions.get(i)[1]);
+			}
+		} catch (IOException e) {
+			throw new SlickException("Failed to write level " + outfile, e);
+		}
+		return tags.size();
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+/**
+ * Flight recorder event of a level being built, lasting from the start of
+ * reading its sprites until its world is created.
+ * Disabled unless turned on in the recording settings.
+ */
+@Name("shadowleap.LevelLoad")
+@Label("Level Load")
+@Category({"Shadow Leap", "Loading"})
+@Description("Level read and its world built")
+@Enabled(false)
+@StackTrace(false)
+public class LevelLoadEvent extends Event {
+	/** level being loaded */
+	@Label("Level")
+	public String level;
+
+	/** sprites in the level */
+	@Label("Sprites")
+	public int sprites;
+
+	/** time spent reading or generating the sprites */
+	@Label("Parse Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	public long parseDuration;
+}
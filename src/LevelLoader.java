@@ -0,0 +1,317 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.SlickException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Reads levels from "assets/levels".
+ * A level is read from its compiled binary form (see LevelCompiler) when
+ * that is up to date, by memory-mapping it and building sprites straight
+ * from the buffer. Otherwise the csv is parsed in place, without
+ * splitting it into strings. Malformed rows are rejected with their line
+ * number. Needs no display, so levels can also be built headless.
+ */
+public final class LevelLoader {
+	/** directory holding all levels */
+	public static final String LEVEL_DIR = "assets/levels/";
+	/** extension of level files */
+	public static final String LEVEL_EXT = ".lvl";
+	/** extension of compiled level files */
+	public static final String COMPILED_EXT = ".lvb";
+	/** index of name of sprite in line from csv */
+	public static final int CELL_NAME = 0;
+	/** index of x position of sprite in line from csv */
+	public static final int CELL_X = 1;
+	/** index of y position of sprite in line from csv */
+	public static final int CELL_Y = 2;
+	/** index of (boolean isMoveRight) of sprite in line from csv */
+	public static final int CELL_MOVE_RIGHT = 3;
+	/** magic number starting a compiled level ("FLVB") */
+	public static final int MAGIC = 0x464C5642;
+	/** version of compiled level format */
+	public static final int VERSION = 1;
+	/** bit of a record's type byte holding its direction */
+	public static final int DIRECTION_BIT = 0x80;
+	/** bits of a record's type byte holding its index in type table */
+	public static final int TYPE_MASK = 0x7F;
+	/** maximum digits of a number parsed in place */
+	private static final int MAX_DIGITS = 18;
+	/** powers of ten, for scaling parsed numbers */
+	private static final double[] POWERS_OF_TEN = new double[MAX_DIGITS + 1];
+	
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i=1; i<=MAX_DIGITS; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+		}
+	}
+	
+	
+	/** Receives the sprite records of a level, in file order */
+	public interface RecordSink {
+		/** Receive one sprite record.
+		 * @param type Type of sprite.
+		 * @param x X position.
+		 * @param y Y position.
+		 * @param moveRight Moving direction.
+		 */
+		void record(SpriteType type, float x, float y, boolean moveRight) 
+				throws SlickException;
+	}
+	
+	
+	/** Read the records of a level, from its compiled form when that is
+	 * not older than the csv.
+	 * @param level The level or string indicating which level to read.
+	 * @param sink Receiver of the records.
+	 */
+	public static void readLevel(String level, RecordSink sink) 
+			throws SlickException {
+		File csv = new File(LEVEL_DIR + level + LEVEL_EXT);
+		File compiled = new File(LEVEL_DIR + level + COMPILED_EXT);
+		if (compiled.isFile() && (!csv.exists() 
+				|| compiled.lastModified() >= csv.lastModified())) {
+			readCompiled(compiled.getPath(), sink);
+		} else {
+			parseCsv(csv.getPath(), sink);
+		}
+	}
+	
+	
+	/** Parse a level csv in place, one "name,x,y[,moveRight]" row per line.
+	 * Blank lines are skipped.
+	 * @param infile Path to the csv.
+	 * @param sink Receiver of the records.
+	 */
+	public static void parseCsv(String infile, RecordSink sink) 
+			throws SlickException {
+		byte[] buf;
+		try {
+			buf = Files.readAllBytes(Paths.get(infile));
+		} catch (IOException e) {
+			throw new SlickException("Failed to read level " + infile, e);
+		}
+		
+		// start and end of each cell of current row
+		int[] cells = new int[2 * (CELL_MOVE_RIGHT + 1)];
+		int line = 1, pos = 0;
+		while (pos < buf.length) {
+			int end = pos;
+			while (end < buf.length && buf[end] != '\n') {
+				end++;
+			}
+			int rowEnd = end;
+			if (rowEnd > pos && buf[rowEnd-1] == '\r') {
+				rowEnd--;
+			}
+			if (rowEnd > pos) {
+				parseRow(buf, pos, rowEnd, cells, infile, line, sink);
+			}
+			pos = end + 1;
+			line++;
+		}
+	}
+	
+	
+	/** Read a compiled level by memory-mapping it.
+	 * @param infile Path to the compiled level.
+	 * @param sink Receiver of the records.
+	 */
+	public static void readCompiled(String infile, RecordSink sink) 
+			throws SlickException {
+		try (FileChannel channel = FileChannel.open(Paths.get(infile),
+				StandardOpenOption.READ)) {
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+										0, channel.size());
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+				throw new SlickException("Not a compiled level: " + infile);
+			}
+			
+			// table of sprite types used by the level
+			SpriteType[] types = new SpriteType[buf.getShort()];
+			for (int i=0; i<types.length; i++) {
+				byte[] name = new byte[buf.getShort()];
+				buf.get(name);
+				types[i] = SpriteType.fromName(name, 0, name.length);
+				if (types[i] == null) {
+					throw new SlickException(infile + ": unknown sprite type "
+								+ new String(name, "US-ASCII"));
+				}
+			}
+			
+			// records of type (and direction) byte, x and y
+			int count = buf.getInt();
+			for (int i=0; i<count; i++) {
+				int tag = buf.get() & 0xFF;
+				int index = tag & TYPE_MASK;
+				if (index >= types.length) {
+					throw new SlickException(infile + ": bad record " + i);
+				}
+				float x = buf.getFloat();
+				float y = buf.getFloat();
+				sink.record(types[index], x, y, (tag & DIRECTION_BIT) != 0);
+			}
+		} catch (IOException | BufferUnderflowException e) {
+			throw new SlickException("Failed to read level " + infile, e);
+		}
+	}
+	
+	
+	/** Identify goals as horizontal spaces between tree tiles.
+	 * @param types Type of each sprite record of a level, in file order.
+	 * @param xs X position of each record.
+	 * @param ys Y position of each record.
+	 * @return float[][] X positions and y positions of the goals.
+	 */
+	public static float[][] findGoals(SpriteType[] types, float[] xs, 
+			float[] ys) {
+		// identify goals (as horizontal spaces between tree tiles)
+		float[] goalXs = new float[types.length];
+		float[] goalYs = new float[types.length];
+		int goals = 0;
+		float prevX, prevY;
+		prevX = prevY = 0;
+		
+		for (int i=0; i<types.length; i++) {
+			// for tree tiles
+			if (types[i] == SpriteType.TREE) {
+				float diffX = xs[i] - prevX;
+				if (diffX > App.TILE_SIZE && prevY == ys[i]) {
+					// found a spot for goal
+					goalXs[goals] = prevX + diffX/2;
+					goalYs[goals] = prevY;
+					goals++;
+				}
+				prevY = ys[i];
+				prevX = xs[i];
+			}
+		}
+		return new float[][] {Arrays.copyOf(goalXs, goals), 
+							Arrays.copyOf(goalYs, goals)};
+	}
+	
+	
+	private static void parseRow(byte[] buf, int start, int end, int[] cells,
+			String infile, int line, RecordSink sink) throws SlickException {
+		// split row into (trimmed) cells
+		int count = 0, cellStart = start;
+		for (int i=start; i<=end; i++) {
+			if (i == end || buf[i] == ',') {
+				if (count == CELL_MOVE_RIGHT + 1) {
+					throw rowError(infile, line, "too many cells");
+				}
+				int s = cellStart, e = i;
+				while (s < e && buf[s] == ' ') {
+					s++;
+				}
+				while (e > s && buf[e-1] == ' ') {
+					e--;
+				}
+				cells[2*count] = s;
+				cells[2*count+1] = e;
+				count++;
+				cellStart = i + 1;
+			}
+		}
+		if (count <= CELL_Y) {
+			throw rowError(infile, line, "expected name,x,y[,moveRight]");
+		}
+		
+		// read components of the row
+		SpriteType type = SpriteType.fromName(buf, cells[2*CELL_NAME],
+								cells[2*CELL_NAME+1]);
+		if (type == null) {
+			throw rowError(infile, line, "unknown sprite type '" 
+					+ cell(buf, cells, CELL_NAME) + "'");
+		}
+		float x = parseNumber(buf, cells, CELL_X, infile, line);
+		float y = parseNumber(buf, cells, CELL_Y, infile, line);
+		boolean moveRight = count > CELL_MOVE_RIGHT 
+				&& isTrue(buf, cells[2*CELL_MOVE_RIGHT], 
+							cells[2*CELL_MOVE_RIGHT+1]);
+		sink.record(type, x, y, moveRight);
+	}
+	
+	private static float parseNumber(byte[] buf, int[] cells, int cell,
+			String infile, int line) throws SlickException {
+		// parse a plain decimal number in place
+		int i = cells[2*cell], end = cells[2*cell+1];
+		boolean negative = false;
+		if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0, scale = 0;
+		boolean point = false;
+		for (; i<end; i++) {
+			byte c = buf[i];
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if (point) {
+					scale++;
+				}
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (i < end || digits > MAX_DIGITS) {
+			// not a plain decimal (e.g. has an exponent), parse as usual
+			try {
+				return Float.parseFloat(cell(buf, cells, cell));
+			} catch (NumberFormatException e) {
+				throw rowError(infile, line, "bad number '" 
+						+ cell(buf, cells, cell) + "'");
+			}
+		}
+		if (digits == 0) {
+			throw rowError(infile, line, "bad number '" 
+					+ cell(buf, cells, cell) + "'");
+		}
+		double value = mantissa / POWERS_OF_TEN[scale];
+		return (float) (negative ? -value : value);
+	}
+	
+	private static boolean isTrue(byte[] buf, int start, int end) {
+		// same as Boolean.parseBoolean, without decoding a string
+		final String expected = "true";
+		if (end - start != expected.length()) {
+			return false;
+		}
+		for (int i=0; i<expected.length(); i++) {
+			if (Character.toLowerCase(buf[start+i]) != expected.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static String cell(byte[] buf, int[] cells, int cell) {
+		// decode a cell (only needed for error messages)
+		return new String(buf, cells[2*cell], cells[2*cell+1] - cells[2*cell]);
+	}
+	
+	private static SlickException rowError(String infile, int line, 
+			String message) {
+		return new SlickException(infile + ":" + line + ": " + message);
+	}
+	
+	private LevelLoader() {
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.SlickException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Builds the World of the next level on a background thread while the
+ * current level is played. Only the sprite graph is built there; textures
+ * are loaded on the render thread afterwards (see World.prepare).
+ */
+public class LevelPreloader {
+	
+	/** Builds a world, without touching any texture */
+	public interface Builder {
+		/** Build the world.
+		 * @return World Built world.
+		 */
+		World build() throws SlickException;
+	}
+	
+	
+	/** single background thread shared by all preloaders */
+	private static final ExecutorService EXECUTOR = 
+			Executors.newSingleThreadExecutor(task -> {
+				Thread thread = new Thread(task, "level-preloader");
+				thread.setDaemon(true);
+				return thread;
+			});
+	
+	
+	/** world being built */
+	private Future<World> pending;
+	
+	/** level the pending world is built for */
+	private int pendingLevel;
+	
+	
+	/** Start building the world of a level in the background, replacing
+	 * any world still pending.
+	 * @param level Level the world is built for.
+	 * @param builder Builds the world.
+	 */
+	public void preload(int level, Builder builder) {
+		cancel();
+		pendingLevel = level;
+		pending = EXECUTOR.submit(builder::build);
+	}
+	
+	
+	/** Take the preloaded world of a level, waiting if it is not finished.
+	 * @param level Level the world is needed for.
+	 * @return World Preloaded world, or null if none was built for level.
+	 */
+	public World take(int level) {
+		if (pending == null || pendingLevel != level) {
+			cancel();
+			return null;
+		}
+		try {
+			return pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+		} finally {
+			pending = null;
+		}
+		return null;
+	}
+	
+	
+	/** Discard the pending world, if any. */
+	public void cancel() {
+		if (pending != null) {
+			pending.cancel(false);
+			pending = null;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.SlickException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A level parsed once and kept for every later entry. Holds the sprite
+ * records of the level (type, position and direction) and the positions
+ * of its goals. A template never changes after it is read, so one may be
+ * shared by any number of threads; building a world from it reads no
+ * file and parses nothing.
+ */
+public final class LevelTemplate {
+	/** templates read so far, by level */
+	private static final ConcurrentHashMap<String, LevelTemplate> CACHE =
+			new ConcurrentHashMap<>();
+
+
+	/** type of each sprite record */
+	private final SpriteType[] types;
+
+	/** x position of each sprite record */
+	private final float[] xs;
+
+	/** y position of each sprite record */
+	private final float[] ys;
+
+	/** direction of each sprite record */
+	private final boolean[] right;
+
+	/** x position of each goal */
+	private final float[] goalXs;
+
+	/** y position of each goal */
+	private final float[] goalYs;
+
+
+	private LevelTemplate(String level) throws SlickException {
+		// read the records, then find the goals between tree tiles
+		Records records = new Records();
+		LevelLoader.readLevel(level, records);
+		int size = records.size;
+		this.types = Arrays.copyOf(records.types, size);
+		this.xs = Arrays.copyOf(records.xs, size);
+		this.ys = Arrays.copyOf(records.ys, size);
+		this.right = Arrays.copyOf(records.right, size);
+
+		float[][] goals = LevelLoader.findGoals(types, xs, ys);
+		this.goalXs = goals[0];
+		this.goalYs = goals[1];
+	}
+
+
+	/** Get the template of a level, reading it on first use.
+	 * @param level The level or string indicating which level to read.
+	 * @return LevelTemplate Template of the level.
+	 */
+	public static LevelTemplate get(String level) throws SlickException {
+		LevelTemplate template = CACHE.get(level);
+		if (template == null) {
+			// two threads may both read it; either copy will do
+			template = new LevelTemplate(level);
+			LevelTemplate raced = CACHE.putIfAbsent(level, template);
+			if (raced != null) {
+				template = raced;
+			}
+		}
+		return template;
+	}
+
+
+	/** Create the sprites of the level, drawing them from their pools.
+	 * @return ArrayList<Sprite> Sprites of the level, in file order.
+	 */
+	public ArrayList<Sprite> createSprites() {
+		ArrayList<Sprite> sprites = new ArrayList<>(types.length);
+		addSprites(sprites);
+		return sprites;
+	}
+
+	/** Append the sprites of the level to a list, drawing them from their
+	 * pools.
+	 * @param sprites List the sprites are appended to, in file order.
+	 */
+	public void addSprites(ArrayList<Sprite> sprites) {
+		sprites.ensureCapacity(sprites.size() + types.length);
+		for (int i=0; i<types.length; i++) {
+			sprites.add(SpritePool.obtain(types[i], xs[i], ys[i], right[i]));
+		}
+	}
+
+	/** Create the goals of the level.
+	 * @return Goal[] Goals of the level, all unfilled.
+	 */
+	public Goal[] createGoals() {
+		Goal[] goals = new Goal[goalXs.length];
+		for (int i=0; i<goals.length; i++) {
+			goals[i] = Goal.createGoal(goalXs[i], goalYs[i]);
+		}
+		return goals;
+	}
+
+	/** Get number of sprite records.
+	 * @return int Sprites in the level.
+	 */
+	public int size() {
+		return types.length;
+	}
+
+
+	/** Records collected while a level is read */
+	private static class Records implements LevelLoader.RecordSink {
+		/** number of records */
+		private int size = 0;
+		/** type of each record */
+		private SpriteType[] types = new SpriteType[64];
+		/** x position of each record */
+		private float[] xs = new float[64];
+		/** y position of each record */
+		private float[] ys = new float[64];
+		/** direction of each record */
+		private boolean[] right = new boolean[64];
+
+		@Override
+		public void record(SpriteType type, float x, float y, 
+				boolean moveRight) {
+			if (size == types.length) {
+				// grow the arrays
+				int capacity = size * 2;
+				types = Arrays.copyOf(types, capacity);
+				xs = Arrays.copyOf(xs, capacity);
+				ys = Arrays.copyOf(ys, capacity);
+				right = Arrays.copyOf(right, capacity);
+			}
+			types[size] = type;
+			xs[size] = x;
+			ys[size] = y;
+			right[size] = moveRight;
+			size++;
+		}
+	}
+}
@@ -58,13 +58,16 @@ public class MenuState extends State {
 		// create singleton player
 		this.player = Player.createPlayer(PLAYER_X, PLAYER_Y);
 		this.player.setRespawnPosition(PLAYER_X, PLAYER_Y);
-		this.world = createMenuWorld();
+		GameRandom.newGame();
+		this.world = createMenuWorld(player, normalGoal, endlessGoal);
+		ReplaySession.enterWorld(world.getId());
 	}
 
 
 	@Override
 	public void update(GameContainer gc, StateBasedGame sbg, int delta) 
 			throws SlickException {
+		updateOverlay(gc);
 		world.update(gc, delta);
 		
 		// check if game is over
@@ -91,18 +94,34 @@ public class MenuState extends State {
 
 	
 	
+	@Override
+	public void leave(GameContainer gc, StateBasedGame sbg) 
+			throws SlickException {
+		// release textures of the menu
+		world.dispose();
+	}
+	
+	
 	@Override
 	public int getID() {
 		return ID;
 	}
 	
 	
-	private World createMenuWorld() {
-		// create the menu world
+	/** Create the menu world (needs no display).
+	 * @param player The player.
+	 * @param normalGoal Goal to enter normal mode.
+	 * @param endlessGoal Goal to enter endless mode.
+	 * @return World World of the menu (or null if it failed).
+	 */
+	public static World createMenuWorld(Player player, Goal normalGoal, 
+			Goal endlessGoal) {
 		ArrayList<Sprite> sprites = createTiles();
 		Goal[] goals = new Goal[] {normalGoal, endlessGoal};
 		try {
-			return new World(this.player, sprites, goals);
+			World world = new World(player, sprites, goals);
+			world.setIdentity("menu");
+			return world;
 		} catch (SlickException e) {
 			e.printStackTrace();
 		}
@@ -110,7 +129,7 @@ public class MenuState extends State {
 	}
 
 	
-	private ArrayList<Sprite> createTiles() {
+	private static ArrayList<Sprite> createTiles() {
 		// create all the tree tiles and goals in menu
 		float tile = App.TILE_SIZE;
 		ArrayList<Sprite> sprites = new ArrayList<Sprite>();
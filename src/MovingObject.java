@@ -3,22 +3,34 @@
  * by Xuanken Tay, University of Melbourne
  */
 
-import org.newdawn.slick.GameContainer;
-import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
 
+import utilities.BoundingBox;
+
 
 /**
  * An abstract moving object inherits from Sprite. Contains method of
- * updating how it moves.
+ * updating how it moves. Once attached to a TrafficStore, its position,
+ * speed and direction live in the store and it is moved by the store.
  */
 public abstract class MovingObject extends Sprite {
+	/** distance a step may stray from speed times time and still count
+	 * as continuous motion (pixels) */
+	public static final float TRAVEL_SLACK = 1;
+	
 	/** Moving speed */
 	private float speed;
 	
 	/** Moving direction */
 	private boolean moveRight;
 	
+	/** Store holding state of this object (if attached) */
+	private TrafficStore store;
+	
+	/** Slot of this object in the store */
+	private int slot;
+	
 	
 	/** Constructor.
 	 * @param imgPath Path to sprite's image.
@@ -29,7 +41,7 @@ public abstract class MovingObject extends Sprite {
 	 * @param tags Tags associated with sprite.
 	 */
 	public MovingObject(String imgPath, float x, float y, float speed, 
-			boolean moveRight, String[] tags) {
+			boolean moveRight, Tag[] tags) {
 		super(imgPath, x, y, tags);
 		this.speed = speed;
 		this.moveRight = moveRight;
@@ -37,25 +49,33 @@ public abstract class MovingObject extends Sprite {
 	
 	
 	@Override
-	public void update(GameContainer gc, int delta) 
+	public void update(InputSource input, int delta) 
 			throws SlickException {
-		// update an obstacle's position
-		move(delta);
+		// update an obstacle's position (unless store moves it)
+		if (store == null) {
+			move(delta);
+		}
 	}
 	
 	
 	@Override
-	public void render(Graphics g) throws SlickException {
-		// some sprites can be flipped according to moving direction
+	public Image getRenderImage() {
+		// some sprites are drawn flipped according to moving direction,
+		// using the shared horizontally flipped image
 		if (!isMovingRight() && hasTag(FLIPPABLE)) {
-			
-			// render horizontally flipped image
-			g.drawImage(getImage().getFlippedCopy(true, false), 
-						getX()-getWidth()/2, getY()-getHeight()/2);
-		
-		} else {
-			super.render(g);
+			return getFlippedImage();
 		}
+		return super.getRenderImage();
+	}
+	
+	
+	@Override
+	public void reset(float x, float y, boolean moveRight) {
+		// detach from the store of the previous world
+		this.store = null;
+		this.slot = 0;
+		this.moveRight = moveRight;
+		super.reset(x, y, moveRight);
 	}
 	
 	
@@ -63,7 +83,7 @@ public abstract class MovingObject extends Sprite {
 	 * @return boolean Moving right?
 	 */
 	public boolean isMovingRight() {
-		return this.moveRight;
+		return store == null ? this.moveRight : store.isMovingRight(slot);
 	}
 	
 	
@@ -71,15 +91,120 @@ public abstract class MovingObject extends Sprite {
 	 * @return float Moving speed.
 	 */
 	public float getSpeed() {
-		return this.speed;
+		return store == null ? this.speed : store.getSpeed(slot);
 	}
 	
 	
 	/** Reverse the direction of sprite. */
 	public void reverseDir() {
-		this.moveRight = !this.moveRight;
+		if (store == null) {
+			this.moveRight = !this.moveRight;
+		} else {
+			store.reverseDir(slot);
+		}
+	}
+	
+	
+	/** Attach to a store, which holds and updates the state of this object
+	 * from now on.
+	 * @param store Store holding this object.
+	 * @param slot Slot of this object in the store.
+	 */
+	public void attach(TrafficStore store, int slot) {
+		this.store = store;
+		this.slot = slot;
+	}
+	
+	
+	/** Check if this object is attached to a store.
+	 * @return boolean Is object moved by a store?
+	 */
+	public boolean isStored() {
+		return store != null;
+	}
+	
+	
+	@Override
+	public float getX() {
+		return store == null ? super.getX() : store.getX(slot);
 	}
 	
+	
+	@Override
+	public float getPrevX() {
+		return store == null ? super.getPrevX() : store.getPrevX(slot);
+	}
+	
+	
+	@Override
+	public void setMove(float x, float y) {
+		if (store == null) {
+			super.setMove(x, y);
+		} else {
+			// stored objects never change lane
+			store.setX(slot, x);
+		}
+	}
+	
+	
+	/** Get how far the object moved in a straight line over the last
+	 * simulation step. A jump longer than the step allows (wrapping
+	 * around the screen) is not a straight move.
+	 * @param delta Length of the step (milliseconds).
+	 * @return float Distance moved along x (pixels), or 0 if it did not
+	 * move in a straight line.
+	 */
+	public float getSweep(int delta) {
+		float dx = getX() - getPrevX();
+		if (delta <= 0 || Math.abs(dx) > getSpeed() * delta + TRAVEL_SLACK) {
+			return 0;
+		}
+		return dx;
+	}
+	
+	
+	/** Find when, within the last simulation step, this object first
+	 * touched a sprite that stood still over the step. The object is
+	 * taken to have moved in a straight line from its previous position,
+	 * so fast objects cannot pass through the sprite unnoticed. A jump
+	 * longer than the step allows (wrapping around the screen) is not
+	 * swept; only the end positions are tested. A time of 0 means they
+	 * touched from the start of the step, which only counts as a new
+	 * contact if the sprite arrived there during the step.
+	 * @param other Sprite standing still (such as the player after a hop).
+	 * @param delta Length of the step (milliseconds).
+	 * @return float Time of impact as a fraction of the step (0 to 1), or 
+	 * -1 if they did not touch.
+	 */
+	public float timeOfImpact(Sprite other, int delta) {
+		BoundingBox box = getBounds();
+		BoundingBox target = other.getBounds();
+		if (target.getTop() > box.getBottom() 
+				|| target.getBottom() < box.getTop()) {
+			// moving objects keep to their row, so the two never meet
+			return -1;
+		}
+		
+		float dx = getSweep(delta);
+		if (dx == 0) {
+			return box.intersects(target) ? 1 : -1;
+		}
+		
+		// times the left edge is close enough, and not yet past, the target
+		float startLeft = box.getLeft() - dx;
+		float enter = (target.getLeft() - box.getWidth() - startLeft) / dx;
+		float exit = (target.getRight() - startLeft) / dx;
+		if (dx < 0) {
+			float swap = enter;
+			enter = exit;
+			exit = swap;
+		}
+		enter = Math.max(0, enter);
+		exit = Math.min(1, exit);
+		return enter <= exit ? enter : -1;
+	}
+	
+	
 	/** Solid sprite pushes and updates position of player.
 	 * @param player Reference to player.
 	 */
@@ -10,7 +10,6 @@ import org.newdawn.slick.SlickException;
 import org.newdawn.slick.state.StateBasedGame;
 import org.newdawn.slick.Graphics;
 import java.util.ArrayList;
-import java.util.Random;
 
 /**
  * Normal game mode for the game (Proj 2).
@@ -41,11 +40,12 @@ public class NormalGameState extends State {
 	/** Current level */
 	private int level = 0;
 	
-	/** Time extralife appears */
-	private float extraLifeStart;
+	/** Builds the next level while current one is played */
+	private LevelPreloader preloader = new LevelPreloader();
 	
-	/** Status to set extralife */
-	private boolean toSetExtraLife = false;
+	/** Level shown on screen */
+	private HudText levelText = createNumber("Level: ", 0, " (Proj2)", 
+											Color.orange);
 
 	
 	
@@ -55,7 +55,23 @@ public class NormalGameState extends State {
 		
 		// get singleton player
 		player = setupPlayer(PLAYER_X, PLAYER_Y);
-		world = createLevel();
+		
+		// use the world built in background during last level, if any
+		World next = preloader.take(level);
+		if (next == null) {
+			next = createLevel(level, player);
+		}
+		// old level is released once textures of new one are loaded
+		next.setPredecessor(world);
+		world = next;
+		ReplaySession.enterWorld(world.getId());
+		
+		// build the following level while this one is played
+		if (level + 1 < MAX_LEVELS) {
+			int nextLevel = level + 1;
+			Player player = this.player;
+			preloader.preload(nextLevel, () -> createLevel(nextLevel, player));
+		}
 	}
 
 	
@@ -64,9 +80,6 @@ public class NormalGameState extends State {
 	public void update(GameContainer gc, StateBasedGame sbg, int delta) 
 			throws SlickException {
 		
-		// handle creation and destruction of extra life
-		handleExtraLife();
-		
 		// update the world and all sprites
         world.update(gc, delta);
         
@@ -96,14 +109,23 @@ public class NormalGameState extends State {
 			throws SlickException {
 		// render world and level string
 		world.render(g);
-		renderString("Level: "+(level+1)+" (Proj2)", LEVEL_X, LEVEL_Y, 
-				Color.orange);
+		levelText.setNumber(level + 1);
+		levelText.render(LEVEL_X, LEVEL_Y);
 		// draw time
 		super.render(gc, sbg, g);
 	}
 
 
 
+	@Override
+	public void leave(GameContainer gc, StateBasedGame sbg) 
+			throws SlickException {
+		// release textures of the current level
+		preloader.cancel();
+		world.dispose();
+	}
+
+
 	@Override
 	public int getID() {
 		return ID;
@@ -119,61 +141,33 @@ public class NormalGameState extends State {
 	
 
 
-	private World createLevel() {
-		// create a world containing player, all sprites and goals
-		try {
-			// read in sprites from csv and find goals
-			ArrayList<Sprite> sprites = readCsv(Integer.toString(level));
-			Goal[] goals = findGoals(sprites);
-			
-			setExtraLifeStart();
-			return new World(this.player, sprites, goals);
-		} catch (SlickException e) {
-			e.printStackTrace();
-		}
-		return null;
-	}
-	
-	
-	private void handleExtraLife() {
-		if (getTime() > extraLifeStart && toSetExtraLife) {
-			// time to create an extralife
-			world.createExtraLife();
-			toSetExtraLife = false;
-		} else if (!toSetExtraLife && !world.hasExtraLife()) {
-			// extra life has disappeared
-			setExtraLifeStart();
-		}
-	}
-	
-	
-	private void setExtraLifeStart() {
-		// set the time for extralife to appear
-		int bound = EXTRALIFE_MAX - EXTRALIFE_MIN + 1;
-		extraLifeStart = new Random().nextInt(bound)+EXTRALIFE_MIN+getTime();
-		toSetExtraLife = true;
-	}
-	
-
-	private Goal[] findGoals(ArrayList<Sprite> sprites) throws SlickException {
-		// identify goals (as horizontal spaces between tree sprites)
-		ArrayList<Goal> goals = new ArrayList<Goal>();
-		float prevX, prevY;
-		prevX = prevY = 0;
+	/** Create a world of a normal level, with extra lives appearing from
+	 * time to time (needs no display, so may run in background).
+	 * @param level Level to be read.
+	 * @param player The player.
+	 * @return World World of the level.
+	 */
+	public static World createLevel(int level, Player player) 
+			throws SlickException {
+		LevelLoadEvent event = new LevelLoadEvent();
+		event.begin();
+		long start = System.nanoTime();
+		LevelTemplate template = LevelTemplate.get(Integer.toString(level));
+		ArrayList<Sprite> sprites = template.createSprites();
+		long parsed = System.nanoTime() - start;
+		Goal[] goals = template.createGoals();
+		World world = new World(player, sprites, goals);
+		world.setIdentity("normal " + level);
+		world.enableExtraLives(EXTRALIFE_MIN, EXTRALIFE_MAX);
 		
-		for (Sprite sprite : sprites) {
-			// for tree tiles
-			if (sprite instanceof Tile && sprite.hasTag(Sprite.SOLID)) {
-				float diffX = sprite.getX() - prevX;
-				if (diffX > App.TILE_SIZE && prevY == sprite.getY()) {
-					// found a spot for goal
-					Goal goal = Goal.createGoal(prevX + diffX/2, prevY);
-					goals.add(goal);
-				}
-				prevY = sprite.getY();
-				prevX = sprite.getX();
-			}
+		event.end();
+		if (event.shouldCommit()) {
+			event.level = Integer.toString(level);
+			event.sprites = sprites.size();
+			event.parseDuration = parsed;
+			event.commit();
 		}
-		return goals.toArray(new Goal[0]);
+		return world;
 	}
+
 }
@@ -0,0 +1,142 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Input;
+
+
+/**
+ * Overlay showing a rolling graph of frame times, broken down into the
+ * phases measured by FrameProfiler, with sprite, culled sprite, draw call
+ * and texture bind counts of the last frame. Toggled with F3 in every state.
+ */
+public final class PerformanceOverlay {
+	/** key toggling the overlay */
+	public static final int TOGGLE_KEY = Input.KEY_F3;
+	/** width of the overlay, in pixels */
+	public static final int WIDTH = 2 * FrameProfiler.HISTORY + 20;
+	/** height of the graph, in pixels */
+	public static final int GRAPH_HEIGHT = 100;
+	/** frame time shown at the top of the graph (milliseconds) */
+	public static final float GRAPH_MILLIS = 50f;
+	/** frame time of 60 frames per second (milliseconds) */
+	public static final float TARGET_MILLIS = 1000f / 60;
+	/** one millisecond, in nanoseconds */
+	private static final float NANOS_PER_MILLI = 1000000f;
+
+	/** colour of each phase, in the order of FrameProfiler.Phase */
+	private static final Color[] COLORS = {Color.white, Color.green,
+			Color.cyan, Color.red, Color.blue, Color.magenta, Color.orange};
+	/** colour of time not spent in any measured phase */
+	private static final Color OTHER = Color.darkGray;
+	/** colour of the background */
+	private static final Color BACKGROUND = new Color(0, 0, 0, 0.7f);
+	/** spacing between lines of text, in pixels */
+	private static final int LINE_HEIGHT = 16;
+
+
+	/** Toggle the overlay if its key has been pressed.
+	 * @param gc The Slick game container object.
+	 */
+	public static void checkToggle(GameContainer gc) {
+		if (gc.getInput().isKeyPressed(TOGGLE_KEY)) {
+			FrameProfiler.setEnabled(!FrameProfiler.isEnabled());
+		}
+	}
+
+	/** Draw the overlay in the top right corner, if shown.
+	 * @param gc The Slick game container object.
+	 * @param g The Slick graphics object, used for drawing.
+	 */
+	public static void render(GameContainer gc, Graphics g) {
+		if (!FrameProfiler.isEnabled()) {
+			return;
+		}
+		int height = GRAPH_HEIGHT + (FrameProfiler.PHASES + 3) * LINE_HEIGHT
+					+ 10;
+		float left = App.SCREEN_WIDTH - WIDTH;
+		Color color = g.getColor();
+
+		g.setColor(BACKGROUND);
+		g.fillRect(left, 0, WIDTH, height);
+		renderGraph(g, left + 10, GRAPH_HEIGHT);
+
+		// averages over the history, and counts of the last frame
+		float y = GRAPH_HEIGHT + 5;
+		g.setColor(Color.white);
+		g.drawString(String.format("%d fps  %.2f ms", gc.getFPS(),
+				averageMillis(null)), left + 10, y);
+		for (FrameProfiler.Phase phase : FrameProfiler.Phase.values()) {
+			y += LINE_HEIGHT;
+			g.setColor(COLORS[phase.ordinal()]);
+			g.drawString(String.format("%-10s %6.2f ms", phase.getLabel(),
+					averageMillis(phase)), left + 10, y);
+		}
+		g.setColor(Color.white);
+		g.drawString(String.format("sprites %d  culled %d",
+				FrameProfiler.getSprites(), FrameProfiler.getCulled()),
+				left + 10, y += LINE_HEIGHT);
+		g.drawString(String.format("draws %d  binds %d",
+				FrameProfiler.getDraws(), FrameProfiler.getBinds()),
+				left + 10, y += LINE_HEIGHT);
+		g.setColor(color);
+	}
+
+
+	private static void renderGraph(Graphics g, float left, float bottom) {
+		// stacked bar per frame, oldest on the left
+		float scale = GRAPH_HEIGHT / GRAPH_MILLIS / NANOS_PER_MILLI;
+		for (int ago=0; ago<FrameProfiler.HISTORY; ago++) {
+			float x = left + 2 * (FrameProfiler.HISTORY - 1 - ago);
+			float y = bottom;
+			long measured = 0;
+			for (FrameProfiler.Phase phase : FrameProfiler.Phase.values()) {
+				long time = FrameProfiler.getPhaseTime(ago, phase);
+				measured += time;
+				y = renderBar(g, x, y, time * scale,
+							COLORS[phase.ordinal()]);
+			}
+			long other = FrameProfiler.getFrameTime(ago) - measured;
+			renderBar(g, x, y, Math.max(0, other) * scale, OTHER);
+		}
+
+		// line at the frame time of 60 fps
+		g.setColor(Color.yellow);
+		float target = bottom - TARGET_MILLIS * NANOS_PER_MILLI * scale;
+		g.drawLine(left, target, left + 2 * FrameProfiler.HISTORY, target);
+	}
+
+	private static float renderBar(Graphics g, float x, float y,
+			float height, Color color) {
+		// draw one segment of a bar, clipped to the graph
+		float h = Math.min(height, y);
+		if (h > 0) {
+			g.setColor(color);
+			g.fillRect(x, y - h, 2, h);
+		}
+		return y - h;
+	}
+
+	private static float averageMillis(FrameProfiler.Phase phase) {
+		// average time of a phase (or whole frames) over the history
+		long total = 0;
+		int frames = 0;
+		for (int ago=0; ago<FrameProfiler.HISTORY; ago++) {
+			long frameTime = FrameProfiler.getFrameTime(ago);
+			if (frameTime == 0) {
+				continue;
+			}
+			total += phase == null ? frameTime
+						: FrameProfiler.getPhaseTime(ago, phase);
+			frames++;
+		}
+		return frames == 0 ? 0 : total / NANOS_PER_MILLI / frames;
+	}
+
+	private PerformanceOverlay() {
+	}
+}
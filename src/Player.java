@@ -3,7 +3,6 @@
  * by Xuanken Tay, University of Melbourne
  */
 
-import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Input;
 
 
@@ -28,6 +27,9 @@ public class Player extends Sprite {
 	/** lives player has */
 	private int lives;
 	
+	/** times player has died */
+	private int deaths;
+	
 	/** object player is riding on */
 	private WaterTransport rideOn;
 	
@@ -63,7 +65,7 @@ public class Player extends Sprite {
 	
 
 	@Override
-	public void update(GameContainer gc, int delta) {
+	public void update(InputSource input, int delta) {
 		// update position of player
 		
 		// move together if player is riding on something
@@ -72,7 +74,7 @@ public class Player extends Sprite {
 		}
 		
 		// receive inputs and move player
-		moveByInput(gc.getInput());
+		moveByInput(input);
 	}
 	
 	@Override
@@ -106,10 +108,18 @@ public class Player extends Sprite {
 		this.lives = lives;
 	}
 	
+	/** Getter of number of times player has died.
+	 * @return int Deaths since player was created.
+	 */
+	public int getDeaths() {
+		return this.deaths;
+	}
+	
 	/** Die and reset to starting position. */
 	public void die() {
 		respawn();
 		this.lives--;
+		this.deaths++;
 	}
 	
 	/** Spawn player */
@@ -170,7 +180,7 @@ public class Player extends Sprite {
 	}
 	
 	
-	private void moveByInput(Input input) {
+	private void moveByInput(InputSource input) {
 		// update player position with input received.
 		float toX = getX(), toY = getY();
 		float step = getWidth();
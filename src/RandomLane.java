@@ -4,7 +4,7 @@
  */
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /** Represent a random lane.
  * Contains method to generate a lane with random chosen sprites
@@ -14,18 +14,27 @@ public class RandomLane {
 
 	/** Local helper enum to draw a random sprite */
 	public enum Obstacle {
-		BUS, BULLDOZER, BIKE, RACECAR, LOG, LONGLOG, TURTLE;
+		BUS(SpriteType.BUS), BULLDOZER(SpriteType.BULLDOZER), 
+		BIKE(SpriteType.BIKE), RACECAR(SpriteType.RACECAR), 
+		LOG(SpriteType.LOG), LONGLOG(SpriteType.LONGLOG), 
+		TURTLE(SpriteType.TURTLE);
 		
 		/** sprites that can be drawn */
 		private static final Obstacle[] VALUES = values();
-		/** random class to be used for drawing a sprite */
-		private static final Random RANDOM = new Random();
+		
+		/** kind of sprite drawn */
+		private final SpriteType type;
+		
+		private Obstacle(SpriteType type) {
+			this.type = type;
+		}
 		
 		/** Static method to draw a random sprite.
+		 * @param random Random stream to draw from.
 		 * @return Obstacle One sprite from the enum.
 		 */
-		public static Obstacle getRandomObs() {
-			return VALUES[RANDOM.nextInt(VALUES.length)];
+		public static Obstacle getRandomObs(SplittableRandom random) {
+			return VALUES[random.nextInt(VALUES.length)];
 		}
 		
 		/** Indicate if the randomly chosen sprite is floating on water.
@@ -39,23 +48,10 @@ public class RandomLane {
 			return false;
 		}
 		
-		private Sprite createObs(float x, float y, boolean moveRight) {
-			// create a sprite
-			if (BUS.equals(this)) {
-				return Vehicle.createBus(x, y, moveRight);
-			} else if (BULLDOZER.equals(this)) {
-				return Vehicle.createBulldozer(x, y, moveRight);
-			} else if (BIKE.equals(this)) {
-				return Vehicle.createBike(x, y, moveRight);
-			} else if (RACECAR.equals(this)) {
-				return Vehicle.createRacecar(x, y, moveRight);
-			} else if (LOG.equals(this)) {
-				return WaterTransport.createLog(x, y, moveRight);
-			} else if (LONGLOG.equals(this)) {
-				return WaterTransport.createLonglog(x, y, moveRight);
-			} else {
-				return WaterTransport.createTurtle(x, y, moveRight);
-			}
+		private void createObs(float[] xs, float y, boolean moveRight,
+				ArrayList<Sprite> sprites) {
+			// draw sprites from their pool, all at once
+			SpritePool.obtain(type, xs, y, moveRight, sprites);
 		}
 	}
 	
@@ -71,26 +67,33 @@ public class RandomLane {
 	/** y position of lane */
 	private float y;
 	
+	/** random stream the lane is drawn from */
+	private SplittableRandom random;
+	
 	/** all sprites along the lane */
 	private ArrayList<Sprite> sprites;
 	
 	
 	/** Constructor that creates a lane of random sprites 
 	 * @param y Y position of lane.
+	 * @param random Stream of the lane, not shared with other lanes.
 	 */
-	public RandomLane(float y) {
-		this.obstacle = Obstacle.getRandomObs();
+	public RandomLane(float y, SplittableRandom random) {
+		this.obstacle = Obstacle.getRandomObs(random);
 		this.y = y;
+		this.random = random;
 		this.sprites = createLane();
 	}
 	
 	/** Constructor that creates a lane of selected sprites.
 	 * @param index Index of sprite in Obstacle enum class.
 	 * @param y Y position of lane.
+	 * @param random Stream of the lane, not shared with other lanes.
 	 */
-	public RandomLane(int index, float y) {
+	public RandomLane(int index, float y, SplittableRandom random) {
 		this.obstacle = Obstacle.values()[index];
 		this.y = y;
+		this.random = random;
 		this.sprites = createLane();
 	}
 	
@@ -107,22 +110,27 @@ public class RandomLane {
 		
 		if (this.obstacle.onWater()) {
 			// create water tiles
-			for (int i=0; i<App.SCREEN_WIDTH; i+=App.TILE_SIZE) {
-				sprites.add(Tile.createWaterTile(i, y));
+			float[] xs = new float[(App.SCREEN_WIDTH + App.TILE_SIZE - 1)
+								/ App.TILE_SIZE];
+			for (int i=0; i<xs.length; i++) {
+				xs[i] = i * App.TILE_SIZE;
 			}
+			SpritePool.obtain(SpriteType.WATER, xs, y, false, sprites);
 		}
 		
 		// create lane of obstacles
-		boolean moveRight = Obstacle.RANDOM.nextBoolean();
-		float x = Obstacle.RANDOM.nextFloat() * X_RANGE;
-		float sep = Obstacle.RANDOM.nextFloat() * SEP_RANGE + SEP_MIN;
+		boolean moveRight = random.nextBoolean();
+		float x = random.nextFloat() * X_RANGE;
+		float sep = random.nextFloat() * SEP_RANGE + SEP_MIN;
 		
 		int nObstacles = (int)((App.SCREEN_WIDTH-x) /(sep * App.TILE_SIZE)+1);
 		
+		float[] xs = new float[nObstacles];
 		for (int i=0; i<nObstacles; i++) {
-			sprites.add(obstacle.createObs(x, y, moveRight));
+			xs[i] = x;
 			x += sep * App.TILE_SIZE;
 		}
+		obstacle.createObs(xs, y, moveRight, sprites);
 		
 		return sprites;
 	}
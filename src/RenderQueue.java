@@ -0,0 +1,154 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.opengl.Texture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Images to be drawn in a frame, grouped by layer and by texture. Layers
+ * are drawn in order, so the scene keeps its stacking; within a layer
+ * images are drawn in the order submitted, each run of consecutive images
+ * sharing a texture with a single texture bind and a single batch of
+ * quads. Overlapping images thus keep their order, and images packed in
+ * one atlas make a single run. Must only be used on the render thread.
+ */
+public class RenderQueue {
+	/** layer of terrain (tiles) */
+	public static final int TILES = 0;
+	/** layer of moving objects (vehicles, logs, turtles, extra lives) */
+	public static final int TRAFFIC = 1;
+	/** layer of filled goals */
+	public static final int GOALS = 2;
+	/** layer of the player */
+	public static final int PLAYER = 3;
+	/** layer of the heads-up display (lives) */
+	public static final int HUD = 4;
+	/** number of layers */
+	public static final int LAYERS = 5;
+
+
+	/** Consecutive images sharing a texture on one layer */
+	private static class Batch {
+		/** texture shared by the images */
+		private Texture texture;
+		/** number of images */
+		private int size = 0;
+		/** images to draw */
+		private Image[] images = new Image[16];
+		/** x position of each image's top left corner */
+		private float[] xs = new float[16];
+		/** y position of each image's top left corner */
+		private float[] ys = new float[16];
+	}
+
+
+	/** runs of images sharing a texture on each layer, in the order
+	 * submitted; batches past the layer's count are kept empty for reuse */
+	private ArrayList<ArrayList<Batch>> layers = new ArrayList<>();
+
+	/** number of batches in use on each layer */
+	private int[] batches = new int[LAYERS];
+
+
+	/** Constructor of an empty queue. */
+	public RenderQueue() {
+		for (int i=0; i<LAYERS; i++) {
+			layers.add(new ArrayList<>());
+		}
+	}
+
+
+	/** Queue an image to be drawn.
+	 * @param layer Layer to draw on.
+	 * @param image Image to draw.
+	 * @param x X position of the top left corner.
+	 * @param y Y position of the top left corner.
+	 */
+	public void add(int layer, Image image, float x, float y) {
+		Batch batch = batchOf(layer, image.getTexture());
+		if (batch.size == batch.images.length) {
+			int capacity = batch.size * 2;
+			batch.images = Arrays.copyOf(batch.images, capacity);
+			batch.xs = Arrays.copyOf(batch.xs, capacity);
+			batch.ys = Arrays.copyOf(batch.ys, capacity);
+		}
+		batch.images[batch.size] = image;
+		batch.xs[batch.size] = x;
+		batch.ys[batch.size] = y;
+		batch.size++;
+	}
+
+	/** Queue a sprite to be drawn where it is shown.
+	 * @param layer Layer to draw on.
+	 * @param sprite Sprite to draw.
+	 */
+	public void add(int layer, Sprite sprite) {
+		Image image = sprite.getRenderImage();
+		add(layer, image, sprite.getRenderX() - image.getWidth()/2,
+			sprite.getRenderY() - image.getHeight()/2);
+	}
+
+
+	/** Draw everything queued, layer by layer, and empty the queue.
+	 * @param g The Slick graphics object whose target is drawn on.
+	 */
+	public void flush(Graphics g) {
+		// batches bypass g, so make its target the one drawn on, and draw
+		// images untinted as Image.draw does
+		Graphics.setCurrent(g);
+		Color.white.bind();
+		for (int l=0; l<LAYERS; l++) {
+			ArrayList<Batch> layer = layers.get(l);
+			for (int b=0; b<batches[l]; b++) {
+				draw(layer.get(b));
+			}
+			batches[l] = 0;
+		}
+	}
+
+
+	private Batch batchOf(int layer, Texture texture) {
+		// the layer's last batch if of the same texture, else a spare one
+		ArrayList<Batch> batchList = layers.get(layer);
+		int count = batches[layer];
+		if (count > 0 && batchList.get(count - 1).texture == texture) {
+			return batchList.get(count - 1);
+		}
+		if (count == batchList.size()) {
+			batchList.add(new Batch());
+		}
+		Batch batch = batchList.get(count);
+		batch.texture = texture;
+		batches[layer]++;
+		return batch;
+	}
+
+	private static void draw(Batch batch) {
+		// bind the texture once and draw every image as one batch of quads
+		Image first = batch.images[0];
+		first.startUse();
+		for (int i=0; i<batch.size; i++) {
+			Image image = batch.images[i];
+			image.drawEmbedded(batch.xs[i], batch.ys[i], image.getWidth(),
+								image.getHeight());
+		}
+		first.endUse();
+		FrameProfiler.countDraw(first);
+		empty(batch);
+	}
+
+	private static void empty(Batch batch) {
+		// drop references to the images, so textures can be released
+		Arrays.fill(batch.images, 0, batch.size, null);
+		batch.size = 0;
+		batch.texture = null;
+	}
+}
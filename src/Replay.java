@@ -0,0 +1,277 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.SlickException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * Recording of a session: the random seed, the worlds played and every
+ * key press consumed by the simulation, each stamped with the simulation
+ * step it happened at.
+ *
+ * Binary format: magic, version, seed (long) and step length (short),
+ * followed by events. Each event is the number of steps since the
+ * previous event (as a variable length integer) and its type, then a key
+ * code (byte) for key events or the world's identity (UTF) for world
+ * events. An end event marks the last step of the session.
+ */
+public class Replay {
+	/** identifies a replay file ("SLRP") */
+	public static final int MAGIC = 0x534C5250;
+	/** version of the format */
+	public static final int VERSION = 1;
+	/** event of a key consumed by a step */
+	public static final int EVENT_KEY = 0;
+	/** event of a world being entered before a step */
+	public static final int EVENT_WORLD = 1;
+	/** event marking the end of the session */
+	public static final int EVENT_END = 2;
+
+
+	/** seed of the session's randomness */
+	private long seed;
+
+	/** length of a simulation step (milliseconds) */
+	private int step;
+
+	/** number of events */
+	private int size = 0;
+
+	/** step of each event */
+	private int[] ticks = new int[64];
+
+	/** type of each event */
+	private byte[] types = new byte[64];
+
+	/** key code of each key event */
+	private int[] keys = new int[64];
+
+	/** identity of each world event */
+	private String[] worlds = new String[64];
+
+
+	/** Constructor of an empty recording.
+	 * @param seed Seed of the session's randomness.
+	 * @param step Length of a simulation step (milliseconds).
+	 */
+	public Replay(long seed, int step) {
+		this.seed = seed;
+		this.step = step;
+	}
+
+
+	/** Add a key consumed by a step.
+	 * @param tick Step the key was consumed at.
+	 * @param key Key code.
+	 */
+	public void addKey(int tick, int key) {
+		add(tick, EVENT_KEY).keys[size - 1] = key;
+	}
+
+	/** Add a world entered before a step.
+	 * @param tick First step of the world.
+	 * @param world Identity of the world.
+	 */
+	public void addWorld(int tick, String world) {
+		add(tick, EVENT_WORLD).worlds[size - 1] = world;
+	}
+
+	/** Mark the end of the session.
+	 * @param tick Number of steps simulated in the session.
+	 */
+	public void addEnd(int tick) {
+		add(tick, EVENT_END);
+	}
+
+
+	/** Get the seed of the session's randomness.
+	 * @return long Seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/** Get the length of a simulation step.
+	 * @return int Step length (milliseconds).
+	 */
+	public int getStep() {
+		return step;
+	}
+
+	/** Get number of events.
+	 * @return int Events.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/** Get step of an event.
+	 * @param i Index of event.
+	 * @return int Step of event.
+	 */
+	public int getTick(int i) {
+		return ticks[i];
+	}
+
+	/** Get type of an event.
+	 * @param i Index of event.
+	 * @return int EVENT_KEY, EVENT_WORLD or EVENT_END.
+	 */
+	public int getType(int i) {
+		return types[i];
+	}
+
+	/** Get key code of a key event.
+	 * @param i Index of event.
+	 * @return int Key code.
+	 */
+	public int getKey(int i) {
+		return keys[i];
+	}
+
+	/** Get identity of a world event.
+	 * @param i Index of event.
+	 * @return String Identity of world.
+	 */
+	public String getWorld(int i) {
+		return worlds[i];
+	}
+
+	/** Get the input of the key events, one frame per step.
+	 * @return ScriptedInput Input to be advanced once per step.
+	 */
+	public ScriptedInput toInput() {
+		int n = 0;
+		for (int i=0; i<size; i++) {
+			if (types[i] == EVENT_KEY) {
+				n++;
+			}
+		}
+		int[] frames = new int[n];
+		int[] codes = new int[n];
+		n = 0;
+		for (int i=0; i<size; i++) {
+			if (types[i] == EVENT_KEY) {
+				frames[n] = ticks[i];
+				codes[n++] = keys[i];
+			}
+		}
+		return new ScriptedInput(frames, codes);
+	}
+
+
+	/** Write the recording to a file.
+	 * @param outfile Path to the file.
+	 */
+	public void write(String outfile) throws SlickException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(outfile)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeLong(seed);
+			out.writeShort(step);
+
+			int last = 0;
+			for (int i=0; i<size; i++) {
+				writeVarInt(out, ticks[i] - last);
+				last = ticks[i];
+				out.writeByte(types[i]);
+				if (types[i] == EVENT_KEY) {
+					out.writeByte(keys[i]);
+				} else if (types[i] == EVENT_WORLD) {
+					out.writeUTF(worlds[i]);
+				}
+			}
+		} catch (IOException e) {
+			throw new SlickException("Failed to write replay " + outfile, e);
+		}
+	}
+
+	/** Read a recording from a file.
+	 * @param infile Path to the file.
+	 * @return Replay Recording read.
+	 */
+	public static Replay read(String infile) throws SlickException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(infile)))) {
+			if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+				throw new SlickException("Not a replay: " + infile);
+			}
+			Replay replay = new Replay(in.readLong(), in.readShort());
+
+			int tick = 0;
+			while (true) {
+				int gap;
+				try {
+					gap = readVarInt(in);
+				} catch (EOFException e) {
+					break;
+				}
+				tick += gap;
+				int type = in.readByte();
+				if (type == EVENT_KEY) {
+					replay.addKey(tick, in.readByte() & 0xFF);
+				} else if (type == EVENT_WORLD) {
+					replay.addWorld(tick, in.readUTF());
+				} else if (type == EVENT_END) {
+					replay.addEnd(tick);
+				} else {
+					throw new SlickException("Bad event in replay " + infile);
+				}
+			}
+			return replay;
+		} catch (IOException e) {
+			throw new SlickException("Failed to read replay " + infile, e);
+		}
+	}
+
+
+	private Replay add(int tick, int type) {
+		// append an event, growing the arrays if needed
+		if (size == ticks.length) {
+			int capacity = size * 2;
+			ticks = Arrays.copyOf(ticks, capacity);
+			types = Arrays.copyOf(types, capacity);
+			keys = Arrays.copyOf(keys, capacity);
+			worlds = Arrays.copyOf(worlds, capacity);
+		}
+		ticks[size] = tick;
+		types[size] = (byte) type;
+		size++;
+		return this;
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value)
+			throws IOException {
+		// seven bits per byte, high bit set on all but the last byte
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		// inverse of writeVarInt
+		int value = 0;
+		for (int shift=0; ; shift+=7) {
+			int b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+}
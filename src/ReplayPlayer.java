@@ -0,0 +1,124 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.SlickException;
+
+
+/**
+ * Plays a recorded session without a display, as fast as possible.
+ * Each world is rebuilt from its identity when the recording enters it,
+ * and stepped with the recorded keys until the next world is entered.
+ * No LWJGL native library is needed.
+ *
+ * Usage: java ReplayPlayer replay [repeats]
+ */
+public class ReplayPlayer {
+
+	/** Start-up method. Plays a recording and reports the outcome.
+	 * @param args Path to the recording and number of repeats (optional).
+	 */
+	public static void main(String[] args) throws SlickException {
+		if (args.length < 1) {
+			System.err.println("Usage: java ReplayPlayer replay [repeats]");
+			System.exit(1);
+		}
+		Replay replay = Replay.read(args[0]);
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+		for (int i=0; i<repeats; i++) {
+			long start = System.nanoTime();
+			World world = play(replay);
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			int steps = ReplaySession.getTick();
+			System.out.printf("%s: %d steps in %.3fs (%.0f steps/s)%n",
+					args[0], steps, seconds, steps / seconds);
+			System.out.printf("last world %s, lives %d, level completed %b, "
+					+ "game over %b%n", world.getId(),
+					Player.getPlayer().getLives(), world.isLevelCompleted(),
+					world.isGameOver());
+		}
+	}
+
+
+	/** Play a recording from its first step to its last.
+	 * @param replay Recording to be played.
+	 * @return World The last world played.
+	 */
+	public static World play(Replay replay) throws SlickException {
+		TextureCache.setHeadless(true);
+		ReplaySession.startPlayback(replay);
+		InputSource none = key -> false;
+
+		World world = null;
+		for (int i=0; i<replay.size(); i++) {
+			if (replay.getType(i) == Replay.EVENT_KEY) {
+				continue;
+			}
+			// step the current world up to this event
+			while (world != null && ReplaySession.getTick() < replay.getTick(i)
+					&& !world.isLevelCompleted() && !world.isGameOver()
+					&& !world.isShuffleRequested()) {
+				world.update(none, World.STEP);
+			}
+			if (replay.getType(i) == Replay.EVENT_END) {
+				break;
+			}
+
+			World next = createWorld(replay.getWorld(i));
+			if (world != null) {
+				world.dispose();
+			}
+			world = next;
+			ReplaySession.enterWorld(world.getId());
+		}
+		return world;
+	}
+
+
+	/** Build a world from its identity, placing the player the way the
+	 * game state entering it does.
+	 * @param id Identity of the world.
+	 * @return World World of that identity.
+	 */
+	public static World createWorld(String id) throws SlickException {
+		String[] parts = id.split(" ");
+		if (parts[0].equals("menu")) {
+			GameRandom.newGame();
+			Player player = HeadlessGame.resetPlayer(MenuState.PLAYER_X,
+													MenuState.PLAYER_Y);
+			return MenuState.createMenuWorld(player,
+					Goal.createGoal(MenuState.NORMAL_GOAL_X,
+									MenuState.NORMAL_GOAL_Y),
+					Goal.createGoal(MenuState.ENDLESS_GOAL_X,
+									MenuState.ENDLESS_GOAL_Y));
+		}
+
+		int level = Integer.parseInt(parts[1]);
+		Player player = Player.getPlayer();
+		if (parts[0].equals("normal")) {
+			placePlayer(player, NormalGameState.PLAYER_X,
+						NormalGameState.PLAYER_Y);
+			return NormalGameState.createLevel(level, player);
+		}
+
+		// a shuffled level keeps the player where it is
+		int shuffle = parts.length > 2
+				? Integer.parseInt(parts[2].substring(1)) : 0;
+		if (shuffle == 0) {
+			placePlayer(player, EndlessGameState.PLAYER_X,
+						EndlessGameState.PLAYER_Y);
+		}
+		return EndlessGameState.createWorld(level, parts[0].equals("bonus"),
+											shuffle, player);
+	}
+
+
+	private static void placePlayer(Player player, float x, float y) {
+		// same as State.setupPlayer
+		player.setMove(x, y);
+		player.setRespawnPosition(x, y);
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.SlickException;
+
+
+/**
+ * Recording or playback of the current session. Counts the simulation
+ * steps of all worlds, supplies each step's input and notes the worlds
+ * entered. While recording, every key a step consumes is logged; while
+ * playing, steps receive the recorded keys instead of live input.
+ * Must only be used on the game thread, apart from save, which may run
+ * on a shutdown hook while the game is still stepping; the recording is
+ * only touched while holding the class's lock.
+ */
+public final class ReplaySession {
+	/** recording in progress (or null) */
+	private static Replay recording;
+
+	/** file the recording is written to */
+	private static String recordFile;
+
+	/** recording being played (or null) */
+	private static Replay playback;
+
+	/** input of the recording being played, advanced once per step */
+	private static ScriptedInput playbackInput;
+
+	/** next event of the recording being played to check worlds against */
+	private static int nextWorld;
+
+	/** steps simulated in the session */
+	private static int tick = 0;
+
+	/** logs the keys consumed from live input while recording */
+	private static RecordingInput recorder = new RecordingInput();
+
+
+	/** Start recording the session. The seed of the session's randomness
+	 * must already be set.
+	 * @param outfile File the recording is written to by save.
+	 */
+	public static void startRecording(String outfile) {
+		recording = new Replay(GameRandom.getSeed(), World.STEP);
+		recordFile = outfile;
+		playback = null;
+		tick = 0;
+	}
+
+	/** Start playing a recording, seeding the session's randomness with
+	 * the recorded seed.
+	 * @param replay Recording to be played.
+	 */
+	public static void startPlayback(Replay replay) {
+		GameRandom.setSeed(replay.getSeed());
+		playback = replay;
+		playbackInput = replay.toInput();
+		nextWorld = 0;
+		recording = null;
+		tick = 0;
+		if (replay.getStep() != World.STEP) {
+			System.err.printf("replay recorded with %d ms steps, " +
+					"played with %d ms%n", replay.getStep(), World.STEP);
+		}
+	}
+
+	/** Check if the session is being recorded.
+	 * @return boolean Is recording?
+	 */
+	public static boolean isRecording() {
+		return recording != null;
+	}
+
+	/** Check if a recording is being played.
+	 * @return boolean Is playing?
+	 */
+	public static boolean isPlaying() {
+		return playback != null;
+	}
+
+	/** Get number of steps simulated in the session.
+	 * @return int Steps.
+	 */
+	public static int getTick() {
+		return tick;
+	}
+
+	/** Get the input of the next simulation step, and count the step.
+	 * @param live Key presses of the player.
+	 * @return InputSource Input the step is to consume.
+	 */
+	public static InputSource stepInput(InputSource live) {
+		int step = tick++;
+		if (playback != null) {
+			playbackInput.advance();
+			return playbackInput;
+		}
+		if (recording != null) {
+			recorder.begin(step, live);
+			return recorder;
+		}
+		return live;
+	}
+
+	/** Note a world being entered, before its first step. While playing,
+	 * a world differing from the recording is reported.
+	 * @param world Identity of the world.
+	 */
+	public static void enterWorld(String world) {
+		logWorld(world);
+		if (playback == null) {
+			return;
+		}
+		while (nextWorld < playback.size()
+				&& playback.getType(nextWorld) != Replay.EVENT_WORLD) {
+			nextWorld++;
+		}
+		if (nextWorld == playback.size()
+				|| playback.getTick(nextWorld) != tick
+				|| !playback.getWorld(nextWorld).equals(world)) {
+			System.err.printf("replay diverged at step %d: entered %s%n",
+					tick, world);
+		}
+		nextWorld++;
+	}
+
+	/** Write the recording in progress to its file, ending it. May be
+	 * called from any thread.
+	 */
+	public static synchronized void save() {
+		if (recording == null) {
+			return;
+		}
+		recording.addEnd(tick);
+		try {
+			recording.write(recordFile);
+		} catch (SlickException e) {
+			e.printStackTrace();
+		}
+		recording = null;
+	}
+
+
+	private static synchronized void logWorld(String world) {
+		// note a world entered, unless the recording has been saved
+		if (recording != null) {
+			recording.addWorld(tick, world);
+		}
+	}
+
+	private static synchronized void logKey(int step, int key) {
+		// note a key consumed, unless the recording has been saved
+		if (recording != null) {
+			recording.addKey(step, key);
+		}
+	}
+
+
+	/** Live input that logs every key consumed by a step */
+	private static class RecordingInput implements InputSource {
+		/** step being recorded */
+		private int step;
+		/** key presses of the player */
+		private InputSource live;
+
+		private void begin(int step, InputSource live) {
+			this.step = step;
+			this.live = live;
+		}
+
+		@Override
+		public boolean isKeyPressed(int key) {
+			if (!live.isKeyPressed(key)) {
+				return false;
+			}
+			logKey(step, key);
+			return true;
+		}
+	}
+
+	private ReplaySession() {
+	}
+}
@@ -0,0 +1,152 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.Input;
+import org.newdawn.slick.SlickException;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+
+/**
+ * Input source replaying a script of key presses, one frame at a time.
+ * Each line of a script reads "frame,key", e.g. "12,UP", where key is one
+ * of UP, DOWN, LEFT, RIGHT, ENTER or SPACE.
+ */
+public class ScriptedInput implements InputSource {
+	/** index of frame in line from script */
+	public static final int CELL_FRAME = 0;
+	/** index of key in line from script */
+	public static final int CELL_KEY = 1;
+	/** number of distinct key codes */
+	private static final int KEY_CODES = 256;
+	
+	
+	/** frame of each scripted press, in order */
+	private int[] frames;
+	
+	/** key of each scripted press */
+	private int[] keys;
+	
+	/** next scripted press to be delivered */
+	private int next = 0;
+	
+	/** current frame */
+	private int frame = -1;
+	
+	/** keys pressed and not yet consumed in current frame */
+	private boolean[] pressed = new boolean[KEY_CODES];
+	
+	
+	/** Constructor.
+	 * @param frames Frame of each press, in ascending order.
+	 * @param keys Key code of each press.
+	 */
+	public ScriptedInput(int[] frames, int[] keys) {
+		this.frames = frames;
+		this.keys = keys;
+	}
+	
+	
+	/** Read a script from file.
+	 * @param infile Path to the script.
+	 * @return ScriptedInput Input source replaying the script.
+	 */
+	public static ScriptedInput readScript(String infile) 
+			throws SlickException {
+		ArrayList<int[]> presses = new ArrayList<>();
+		int lineNumber = 0;
+		try (BufferedReader br = new BufferedReader(new FileReader(infile))) {
+			String text;
+			while ((text = br.readLine()) != null) {
+				lineNumber++;
+				text = text.trim();
+				if (text.isEmpty()) {
+					continue;
+				}
+				String cells[] = text.split(",");
+				if (cells.length <= CELL_KEY) {
+					throw new SlickException(infile + ":" + lineNumber
+							+ ": expected frame,key");
+				}
+				int frame = Integer.parseInt(cells[CELL_FRAME].trim());
+				int key = keyCode(cells[CELL_KEY].trim());
+				if (key < 0) {
+					throw new SlickException(infile + ":" + lineNumber 
+							+ ": unknown key " + cells[CELL_KEY]);
+				}
+				presses.add(new int[] {frame, key});
+			}
+		} catch (IOException | NumberFormatException e) {
+			throw new SlickException(infile + ":" + lineNumber + ": " 
+							+ e.getMessage(), e);
+		}
+		
+		presses.sort((a, b) -> Integer.compare(a[0], b[0]));
+		int[] frames = new int[presses.size()];
+		int[] keys = new int[presses.size()];
+		for (int i=0; i<presses.size(); i++) {
+			frames[i] = presses.get(i)[0];
+			keys[i] = presses.get(i)[1];
+		}
+		return new ScriptedInput(frames, keys);
+	}
+	
+	
+	/** Move on to the next frame, delivering its scripted presses.
+	 * Presses not consumed during a frame are dropped.
+	 */
+	public void advance() {
+		frame++;
+		for (int i=0; i<KEY_CODES; i++) {
+			pressed[i] = false;
+		}
+		while (next < frames.length && frames[next] <= frame) {
+			pressed[keys[next]] = true;
+			next++;
+		}
+	}
+	
+	
+	@Override
+	public boolean isKeyPressed(int key) {
+		if (key < 0 || key >= KEY_CODES || !pressed[key]) {
+			return false;
+		}
+		pressed[key] = false;
+		return true;
+	}
+	
+	
+	/** Get current frame.
+	 * @return int Current frame (-1 before the first advance).
+	 */
+	public int getFrame() {
+		return frame;
+	}
+	
+	
+	private static int keyCode(String name) {
+		// translate name of a key into its code
+		switch (name) {
+		case "UP":
+			return Input.KEY_UP;
+		case "DOWN":
+			return Input.KEY_DOWN;
+		case "LEFT":
+			return Input.KEY_LEFT;
+		case "RIGHT":
+			return Input.KEY_RIGHT;
+		case "ENTER":
+			return Input.KEY_ENTER;
+		case "SPACE":
+			return Input.KEY_SPACE;
+		default:
+			return -1;
+		}
+	}
+}
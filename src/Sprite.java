@@ -3,13 +3,9 @@
  * by Xuanken Tay, University of Melbourne
  */
 
-import org.newdawn.slick.GameContainer;	
-import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import utilities.BoundingBox;
 
 
@@ -18,29 +14,80 @@ import utilities.BoundingBox;
  * Contains general methods such as getters, setters and handles rendering.
  */
 public abstract class Sprite {
+	
+	/** Tags (properties) a sprite can have, each stored as one bit */
+	public enum Tag {
+		LETHAL, SOLID, FLOATING, REVERSIBLE, DIVEABLE, FLIPPABLE, PICKUP;
+		
+		/** bit representing this tag in a mask */
+		private final int bit = 1 << ordinal();
+		
+		/** Get the bit of this tag.
+		 * @return int Mask containing only this tag.
+		 */
+		public int bit() {
+			return bit;
+		}
+		
+		/** Combine tags into a single mask.
+		 * @param tags Tags to be combined.
+		 * @return int Mask of all the tags.
+		 */
+		public static int mask(Tag... tags) {
+			int mask = 0;
+			for (Tag tag : tags) {
+				mask |= tag.bit;
+			}
+			return mask;
+		}
+	}
+	
 	/** tag indicating sprite can kill player */
-	public static final String LETHAL = "lethal";
+	public static final Tag LETHAL = Tag.LETHAL;
 	/** tag indicating sprite is solid */
-	public static final String SOLID = "solid";
+	public static final Tag SOLID = Tag.SOLID;
 	/** tag indicating sprite is floating */
-	public static final String FLOATING = "floating";
+	public static final Tag FLOATING = Tag.FLOATING;
 	/** tag indicating sprite can reverse direction */
-	public static final String REVERSIBLE = "reversible";
+	public static final Tag REVERSIBLE = Tag.REVERSIBLE;
 	/** tag indicating sprite can dive */
-	public static final String DIVEABLE = "diveable";
+	public static final Tag DIVEABLE = Tag.DIVEABLE;
 	/** tag indicating (some) sprites can be flipped horizontally */
-	public static final String FLIPPABLE = "flippable";
+	public static final Tag FLIPPABLE = Tag.FLIPPABLE;
+	/** tag indicating sprite can be picked up by the player */
+	public static final Tag PICKUP = Tag.PICKUP;
 
 	
 	
 	/** image of sprite */
 	private Image image;
 	
+	/** mirrored image of sprite, shared through the texture cache */
+	private Image flippedImage;
+	
+	/** path to sprite's image, key into the texture cache */
+	private String imgPath;
+	
 	/** x, y position of sprite */
 	private float x, y;
 	
-	/** tags (properties) associated with sprite */
-	private ArrayList<String> tags;
+	/** x, y position of sprite before the last simulation step */
+	private float prevX, prevY;
+	
+	/** x, y position sprite is drawn at, between previous and current */
+	private float renderX, renderY;
+	
+	/** width and height of sprite's image */
+	private float width, height;
+	
+	/** tags (properties) associated with sprite, as a bitmask */
+	private int tags;
+	
+	/** tags sprite was created with, restored when it is recycled */
+	private int initialTags;
+	
+	/** kind of sprite, if it is recycled through the sprite pool */
+	private SpriteType type;
 	
 	/** for collision detection */
 	private BoundingBox bounds;
@@ -62,27 +109,78 @@ public abstract class Sprite {
 	 * @param y Starting y position of sprite.
 	 * @param tags Tags associated with sprite.
 	 */
-	public Sprite(String imgPath, float x, float y, String[] tags) {
+	public Sprite(String imgPath, float x, float y, Tag[] tags) {
 		createSprite(imgPath, x, y);
-		this.tags = createTags(tags);
+		this.tags = Tag.mask(tags);
+		this.initialTags = this.tags;
 	}
 	
 	
 	/** Dummy update method to be overriden by subclasses.
-	 * @param gc The Slick game container.
+	 * @param input Source of key presses.
 	 * @param delta Time passed since last frame (milliseconds).
 	 */
-	public void update(GameContainer gc, int delta) 
+	public void update(InputSource input, int delta) 
 			throws SlickException {
 		return;
 	}
 	
 	
-	/** Render the sprite from top left corner.
-     * @param g The Slick graphics object, used for drawing.
-     */
-	public void render(Graphics g) throws SlickException {
-		g.drawImage(image, x-image.getWidth()/2, y-image.getHeight()/2);
+	/** Check if the sprite is currently shown at all. Sprites hidden for
+	 * a while (diving, unfilled) override this, so they can be skipped 
+	 * without drawing.
+	 * @return boolean Would render draw anything?
+	 */
+	public boolean isVisible() {
+		return true;
+	}
+	
+	/** Check if the sprite, where it is drawn, overlaps a rectangle.
+	 * @param left Left edge of the rectangle.
+	 * @param top Top edge of the rectangle.
+	 * @param right Right edge of the rectangle.
+	 * @param bottom Bottom edge of the rectangle.
+	 * @return boolean Is any of the sprite inside?
+	 */
+	public boolean isInView(float left, float top, float right, 
+			float bottom) {
+		float halfWidth = width/2, halfHeight = height/2;
+		return !(renderX + halfWidth <= left || renderX - halfWidth >= right
+				|| renderY + halfHeight <= top 
+				|| renderY - halfHeight >= bottom);
+	}
+	
+	
+	/** Reset a recycled sprite in place, as if it was newly created.
+	 * @param x Starting x position of sprite.
+	 * @param y Starting y position of sprite.
+	 * @param moveRight Moving direction (ignored by sprites not moving).
+	 */
+	public void reset(float x, float y, boolean moveRight) {
+		setMove(x, y);
+		this.prevX = this.renderX = x;
+		this.prevY = this.renderY = y;
+		this.tags = this.initialTags;
+	}
+	
+	
+	/** Remember the current position, before a simulation step moves the
+	 * sprite.
+	 */
+	public void savePosition() {
+		this.prevX = getX();
+		this.prevY = getY();
+	}
+	
+	
+	/** Place the sprite for drawing between its previous and current
+	 * position. Jumps further than a tile (wrapping around, respawning)
+	 * are not smoothed.
+	 * @param alpha Fraction of a step passed since the last step.
+	 */
+	public void interpolate(float alpha) {
+		this.renderX = lerp(getPrevX(), getX(), alpha);
+		this.renderY = lerp(getPrevY(), getY(), alpha);
 	}
 		
 	
@@ -112,52 +210,153 @@ public abstract class Sprite {
 		return this.y;
 	}
 
-	/** Getter for image of sprite.
+	/** Getter for x position of sprite before the last simulation step.
+	 * @return float Previous x position of sprite.
+	 */
+	public float getPrevX() {
+		return this.prevX;
+	}
+	
+	/** Getter for y position of sprite before the last simulation step.
+	 * @return float Previous y position of sprite.
+	 */
+	public float getPrevY() {
+		return this.prevY;
+	}
+	
+	/** Getter for x position sprite is drawn at.
+	 * @return float Interpolated x position of sprite.
+	 */
+	public float getRenderX() {
+		return this.renderX;
+	}
+	
+	/** Getter for y position sprite is drawn at.
+	 * @return float Interpolated y position of sprite.
+	 */
+	public float getRenderY() {
+		return this.renderY;
+	}
+
+	/** Getter for kind of sprite.
+	 * @return SpriteType Kind of sprite, or null if it is never recycled.
+	 */
+	public SpriteType getType() {
+		return this.type;
+	}
+	
+	/** Setter for kind of sprite, marking it as recyclable.
+	 * @param type Kind of sprite.
+	 */
+	public void setType(SpriteType type) {
+		this.type = type;
+	}
+
+	/** Getter for image of sprite, loading it if not yet loaded.
 	 * @return Image image.
 	 */
 	public Image getImage() {
+		loadImage();
 		return this.image;
 	}
 	
+	/** Acquire the sprite's image from the texture cache. Sprites are 
+	 * created without their image, so they can be built off the render 
+	 * thread; this must be called on the render thread.
+	 */
+	public void loadImage() {
+		if (this.image != null || TextureCache.isHeadless()) {
+			return;
+		}
+		try {
+			this.image = TextureCache.acquire(this.imgPath);
+		} catch (SlickException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/** Check if the sprite's image has been loaded.
+	 * @return boolean Is image loaded?
+	 */
+	public boolean isImageLoaded() {
+		return this.image != null;
+	}
+	
+	/** Getter for the image the sprite is currently drawn with.
+	 * @return Image Image to draw.
+	 */
+	public Image getRenderImage() {
+		return getImage();
+	}
+	
+	/** Getter for horizontally mirrored image of sprite.
+	 * @return Image Mirrored image.
+	 */
+	public Image getFlippedImage() {
+		if (this.flippedImage == null) {
+			loadImage();
+			this.flippedImage = TextureCache.getFlipped(this.imgPath);
+		}
+		return this.flippedImage;
+	}
+	
 	/** Getter for image width of sprite.
 	 * @return float Image width.
 	 */
 	public float getWidth() {
-		return this.image.getWidth();
+		return this.width;
 	}
 	
 	/** Getter for image height of sprite.
 	 * @return float Image height.
 	 */
 	public float getHeight() {
-		return this.image.getHeight();
+		return this.height;
 	}
 	
 	/** Check if sprite has certain tag.
 	 * @param tag Tag of interest.
 	 * @return boolean Presence of certain tag.
 	 */
-	public boolean hasTag(String tag) {
-		for (String s : this.tags) {
-			if (s.equals(tag)) {
-				return true;
-			}
-		}
-		return false;
+	public boolean hasTag(Tag tag) {
+		return (this.tags & tag.bit) != 0;
+	}
+	
+	/** Check if sprite has at least one of several tags.
+	 * @param mask Tags of interest, combined with Tag.mask.
+	 * @return boolean Presence of any of the tags.
+	 */
+	public boolean hasAnyTag(int mask) {
+		return (this.tags & mask) != 0;
+	}
+	
+	/** Check if sprite has all of several tags.
+	 * @param mask Tags of interest, combined with Tag.mask.
+	 * @return boolean Presence of all of the tags.
+	 */
+	public boolean hasAllTags(int mask) {
+		return (this.tags & mask) == mask;
+	}
+	
+	/** Get all tags of sprite.
+	 * @return int Tags as a bitmask.
+	 */
+	public int getTags() {
+		return this.tags;
 	}
 	
 	/** Add a tag to sprite.
 	 * @param tag Tag to be added.
 	 */
-	public void addTag(String tag) {
-		this.tags.add(tag);
+	public void addTag(Tag tag) {
+		this.tags |= tag.bit;
 	}
 	
 	/** Remove a tag from sprite.
 	 * @param tag Tag to be removed.
 	 */
-	public void removeTag(String tag) {
-		this.tags.remove(tag);
+	public void removeTag(Tag tag) {
+		this.tags &= ~tag.bit;
 	}
 	
 	/** Check if this sprite collides with another sprite.
@@ -165,13 +364,20 @@ public abstract class Sprite {
 	 * @return boolean Are they in collision?
 	 */
 	public boolean collidesWith(Sprite other) {
-		if (this.bounds.intersects(other.bounds)) {
+		if (getBounds().intersects(other.getBounds())) {
 				return true;
 		}
 
 		return false;
 	}
 	
+	/** Getter for bounds of sprite, used for collision detection.
+	 * @return BoundingBox Bounds at current position.
+	 */
+	public BoundingBox getBounds() {
+		return this.bounds;
+	}
+	
 	/** Some sprite can kill player.
 	 * @param player Reference to player.
 	 */
@@ -179,6 +385,15 @@ public abstract class Sprite {
 		player.die();
 	}
 	
+	/** Release the sprite's shared image once it is no longer used. */
+	public void dispose() {
+		if (this.image != null) {
+			TextureCache.release(this.imgPath);
+			this.image = null;
+			this.flippedImage = null;
+		}
+	}
+	
 	/** Check if sprite is on screen entirely.
 	 * @return boolean Sprite is on screen.
 	 */
@@ -192,7 +407,6 @@ public abstract class Sprite {
 	 * @return boolean Sprite is on screen.
 	 */
 	public boolean onScreen(float x, float y) {
-		float width = image.getWidth();
 		return (x - width/2 >= 0)
 				&& (x + width/2 <= App.SCREEN_WIDTH)
 				&& (y - width/2 >= 0)
@@ -201,21 +415,30 @@ public abstract class Sprite {
 	
 
 	
+	private static float lerp(float from, float to, float alpha) {
+		// blend positions, snapping across large jumps
+		if (Math.abs(to - from) > App.TILE_SIZE) {
+			return to;
+		}
+		return from + (to - from) * alpha;
+	}
+	
 	private void createSprite(String imgPath, float x, float y) {
 		// create sprites with empty tags
 		try {
-			this.image = new Image(imgPath);
+			// image is loaded later, only its dimensions are needed now
+			int[] size = TextureCache.getSize(imgPath);
+			this.imgPath = imgPath;
+			this.width = size[0];
+			this.height = size[1];
 			this.x = x;
 			this.y = y;
-			this.tags = new ArrayList<>();
-			this.bounds = new BoundingBox(this.image, this.x, this.y);
+			this.prevX = this.renderX = x;
+			this.prevY = this.renderY = y;
+			this.tags = 0;
+			this.bounds = new BoundingBox(this.x, this.y, width, height);
 		} catch (SlickException e) {
 			e.printStackTrace();
 		}
 	}
-	
-	private ArrayList<String> createTags(String[] tags){
-		// convert string array of tags to array list of tags
-		return new ArrayList<>(Arrays.asList(tags));
-	}
 }
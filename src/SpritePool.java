@@ -0,0 +1,133 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+
+
+/**
+ * Pools of tiles, vehicles and water transport, one per kind of sprite.
+ * Worlds draw their sprites from the pools and return them once
+ * discarded, so building levels over and over (as endless mode does)
+ * reuses the same objects instead of allocating new ones.
+ * Worlds may be built on a background thread, so the pools are
+ * synchronised. Only taking free sprites holds the lock; sprites are
+ * reset or created outside it, and lanes built in parallel claim all
+ * their sprites at once.
+ */
+public final class SpritePool {
+	/** most free sprites kept of each kind */
+	public static final int MAX_FREE = 2048;
+
+
+	/** free sprites of each kind */
+	private static final EnumMap<SpriteType, ArrayDeque<Sprite>> FREE =
+			new EnumMap<>(SpriteType.class);
+
+	static {
+		for (SpriteType type : SpriteType.values()) {
+			FREE.put(type, new ArrayDeque<>());
+		}
+	}
+
+	/** number of sprites that had to be created */
+	private static long created;
+
+	/** number of sprites served from the pools */
+	private static long reused;
+
+
+	/** Obtain a sprite, recycling a free one if available.
+	 * @param type Kind of sprite.
+	 * @param x Starting x position of sprite.
+	 * @param y Starting y position of sprite.
+	 * @param moveRight Moving direction (ignored by tiles).
+	 * @return Sprite Sprite reset to the given position and direction.
+	 */
+	public static Sprite obtain(SpriteType type, float x, float y,
+			boolean moveRight) {
+		return prepare(claim(type, 1)[0], type, x, y, moveRight);
+	}
+
+	/** Obtain sprites of one kind along a lane, taking the pool's lock
+	 * once for all of them.
+	 * @param type Kind of sprite.
+	 * @param xs Starting x position of each sprite.
+	 * @param y Starting y position of the sprites.
+	 * @param moveRight Moving direction (ignored by tiles).
+	 * @param sprites List the sprites are added to, in the order of xs.
+	 */
+	public static void obtain(SpriteType type, float[] xs, float y,
+			boolean moveRight, ArrayList<Sprite> sprites) {
+		Sprite[] claimed = claim(type, xs.length);
+		for (int i=0; i<xs.length; i++) {
+			sprites.add(prepare(claimed[i], type, xs[i], y, moveRight));
+		}
+	}
+
+	/** Return a sprite to its pool. It must no longer be used by any world,
+	 * and its image must have been released. Sprites not obtained from a
+	 * pool are ignored.
+	 * @param sprite Sprite to be recycled.
+	 */
+	public static synchronized void recycle(Sprite sprite) {
+		if (sprite.getType() == null) {
+			return;
+		}
+		ArrayDeque<Sprite> free = FREE.get(sprite.getType());
+		if (free.size() < MAX_FREE) {
+			free.addLast(sprite);
+		}
+	}
+
+	/** Get number of free sprites of a kind.
+	 * @param type Kind of sprite.
+	 * @return int Free sprites.
+	 */
+	public static synchronized int getFree(SpriteType type) {
+		return FREE.get(type).size();
+	}
+
+	/** Summarise the pool counters.
+	 * @return String Human readable counters.
+	 */
+	public static synchronized String report() {
+		int free = 0;
+		for (ArrayDeque<Sprite> sprites : FREE.values()) {
+			free += sprites.size();
+		}
+		return String.format("sprites: %d created, %d reused, %d free",
+				created, reused, free);
+	}
+
+	private static synchronized Sprite[] claim(SpriteType type, int count) {
+		// take up to count free sprites, the rest (null) to be created
+		ArrayDeque<Sprite> free = FREE.get(type);
+		Sprite[] claimed = new Sprite[count];
+		int taken = 0;
+		while (taken < count && !free.isEmpty()) {
+			claimed[taken++] = free.pollLast();
+		}
+		reused += taken;
+		created += count - taken;
+		return claimed;
+	}
+
+	private static Sprite prepare(Sprite sprite, SpriteType type, float x,
+			float y, boolean moveRight) {
+		// reset a claimed sprite, or create one if none was free
+		if (sprite == null) {
+			sprite = type.create(x, y, moveRight);
+			sprite.setType(type);
+		} else {
+			sprite.reset(x, y, moveRight);
+		}
+		return sprite;
+	}
+
+	private SpritePool() {
+	}
+}
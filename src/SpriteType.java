@@ -0,0 +1,115 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Types of sprites that can be placed in a level file, by their name in
+ * the file.
+ */
+public enum SpriteType {
+	GRASS("grass"), WATER("water"), TREE("tree"),
+	BUS("bus"), RACECAR("racecar"), BIKE("bike"), BULLDOZER("bulldozer"),
+	LOG("log"), LONGLOG("longLog"), TURTLE("turtle");
+	
+	/** all types */
+	private static final SpriteType[] VALUES = values();
+	
+	/** name of type in level files */
+	private final String levelName;
+	
+	/** name of type as (ascii) bytes, for matching without decoding */
+	private final byte[] nameBytes;
+	
+	
+	private SpriteType(String levelName) {
+		this.levelName = levelName;
+		this.nameBytes = levelName.getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	
+	/** Get name of type in level files.
+	 * @return String Name of type.
+	 */
+	public String getLevelName() {
+		return levelName;
+	}
+	
+	
+	/** Find a type by its name in level files.
+	 * @param name Name of type.
+	 * @return SpriteType Type, or null if there is no such type.
+	 */
+	public static SpriteType fromName(String name) {
+		for (SpriteType type : VALUES) {
+			if (type.levelName.equals(name)) {
+				return type;
+			}
+		}
+		return null;
+	}
+	
+	
+	/** Find a type by its name, held in a range of a byte buffer.
+	 * @param buf Buffer holding the name.
+	 * @param start Index of first byte of name.
+	 * @param end Index after last byte of name.
+	 * @return SpriteType Type, or null if there is no such type.
+	 */
+	public static SpriteType fromName(byte[] buf, int start, int end) {
+		for (SpriteType type : VALUES) {
+			byte[] name = type.nameBytes;
+			if (name.length != end - start) {
+				continue;
+			}
+			int i = 0;
+			while (i < name.length && name[i] == buf[start + i]) {
+				i++;
+			}
+			if (i == name.length) {
+				return type;
+			}
+		}
+		return null;
+	}
+	
+	
+	/** Create a sprite of this type.
+	 * @param x X position.
+	 * @param y Y position.
+	 * @param moveRight Moving direction (ignored by tiles).
+	 * @return Sprite Created sprite.
+	 */
+	public Sprite create(float x, float y, boolean moveRight) {
+		switch (this) {
+		// is a tile
+		case GRASS:
+			return Tile.createGrassTile(x, y);
+		case WATER:
+			return Tile.createWaterTile(x, y);
+		case TREE:
+			return Tile.createTreeTile(x, y);
+		
+		// is a vehicle
+		case BUS:
+			return Vehicle.createBus(x, y, moveRight);
+		case RACECAR:
+			return Vehicle.createRacecar(x, y, moveRight);
+		case BIKE:
+			return Vehicle.createBike(x, y, moveRight);
+		case BULLDOZER:
+			return Vehicle.createBulldozer(x, y, moveRight);
+		
+		// is water transport
+		case LOG:
+			return WaterTransport.createLog(x, y, moveRight);
+		case LONGLOG:
+			return WaterTransport.createLonglog(x, y, moveRight);
+		default:
+			return WaterTransport.createTurtle(x, y, moveRight);
+		}
+	}
+}
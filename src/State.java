@@ -14,8 +14,6 @@ import org.newdawn.slick.state.StateBasedGame;
 import org.newdawn.slick.state.transition.*;
 
 import java.awt.Font;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.util.ArrayList;
 
 /**
@@ -27,15 +25,6 @@ public abstract class State extends BasicGameState {
 	public static final int LEVEL_X = 0;
 	/** y position to render current level */
 	public static final int LEVEL_Y = 20;
-	/** index of name of sprite in line from csv */
-	public static final int CELL_NAME = 0;
-	/** index of x position of sprite in line from csv */
-	public static final int CELL_X = 1;
-	/** index of y position of sprite in line from csv */
-	public static final int CELL_Y = 2;
-	/** index of (boolean isMoveRight) of sprite in line from csv */
-	public static final int CELL_MOVE_RIGHT = 3;
-
 	
 	/** total time in playing the game */
 	private float totalTime;
@@ -48,6 +37,9 @@ public abstract class State extends BasicGameState {
 	
 	/** nicer fonts for rendering level and time */
 	private TrueTypeFont trueTypeFont = new TrueTypeFont(font, true);
+	
+	/** total time shown on screen */
+	private HudText timeText = createNumber("Time: ", 1, "", Color.green);
 
 	
 	
@@ -73,6 +65,17 @@ public abstract class State extends BasicGameState {
 			throws SlickException {
 		// increment the total time
 		totalTime += delta * App.MILLISECOND;
+		updateOverlay(gc);
+	}
+
+	/**
+	 * Toggle the performance overlay if F3 was pressed, for states
+	 * updating their own game without calling update.
+	 * 
+	 * @param gc The Slick game container object.
+	 */
+	public void updateOverlay(GameContainer gc) {
+		PerformanceOverlay.checkToggle(gc);
 	}
 
 	/**
@@ -86,7 +89,21 @@ public abstract class State extends BasicGameState {
 	public void render(GameContainer gc, StateBasedGame sbg, Graphics g) 
 			throws SlickException {
 		// render total time
-		renderString(String.format("Time: %.1f", totalTime), 0, 0, Color.green);
+		timeText.setNumber(totalTime);
+		timeText.render(0, 0);
+		renderOverlay(gc, g);
+	}
+
+	/**
+	 * Render the performance overlay (toggled with F3) and end the frame,
+	 * for states drawing their own screen without calling render.
+	 * 
+	 * @param gc The Slick game container object.
+	 * @param g  The Slick graphics object, used for drawing.
+	 */
+	public void renderOverlay(GameContainer gc, Graphics g) {
+		PerformanceOverlay.render(gc, g);
+		FrameProfiler.endFrame();
 	}
 
 	/**
@@ -155,94 +172,35 @@ public abstract class State extends BasicGameState {
 	}
 
 	/**
-	 * Helper function to render a multiline string.
+	 * Create HUD text in the font of the state, laid out only when it
+	 * changes.
 	 * 
-	 * @param text  String to be rendered.
-	 * @param x     Render at x position.
-	 * @param y     Render at y position.
 	 * @param color Color of the font.
+	 * @return HudText Plain text, set with setText.
 	 */
-	public void renderString(String text, float x, float y, Color color) {
-		for (String line : text.split("\n")) {
-			trueTypeFont.drawString(x, y, line, color);
-			y += trueTypeFont.getHeight();
-		}
+	public HudText createText(Color color) {
+		return new HudText(trueTypeFont, color);
 	}
 
 	/**
-	 * read in csv from "assets"
+	 * Create a HUD number field in the font of the state.
 	 * 
-	 * @param level The level or string indicating which csv to read from.
-	 * @return ArrayList<Sprite> Sprites to be created from csv.
+	 * @param prefix   Text before the number.
+	 * @param decimals Digits shown after the decimal point.
+	 * @param suffix   Text after the number.
+	 * @param color    Color of the font.
+	 * @return HudText Number field, set with setNumber.
 	 */
-	public ArrayList<Sprite> readCsv(String level) {
-		ArrayList<Sprite> sprites = new ArrayList<Sprite>();
-		String infile = "assets/levels/" + level + ".lvl";
-
-		try (BufferedReader br = new BufferedReader(new FileReader(infile))) {
-			String text;
-			while ((text = br.readLine()) != null) {
-				String cells[] = text.split(",");
-
-				// read components of each line
-				String objectName = cells[CELL_NAME];
-				float x = Float.parseFloat(cells[CELL_X]);
-				float y = Float.parseFloat(cells[CELL_Y]);
-				boolean moveRight = false;
-				try {
-					moveRight = Boolean.parseBoolean(cells[CELL_MOVE_RIGHT]);
-				} catch (Exception e) {
-					;
-				}
-
-				switch (objectName) {
-				// is a tile
-				case "grass":
-					sprites.add(Tile.createGrassTile(x, y));
-					break;
-				case "water":
-					sprites.add(Tile.createWaterTile(x, y));
-					break;
-				case "tree":
-					sprites.add(Tile.createTreeTile(x, y));
-					break;
-
-				// is a vehicle
-				case "bus":
-					sprites.add(Vehicle.createBus(x, y, moveRight));
-					break;
-				case "racecar":
-					sprites.add(Vehicle.createRacecar(x, y, moveRight));
-					break;
-				case "bike":
-					sprites.add(Vehicle.createBike(x, y, moveRight));
-					break;
-				case "bulldozer":
-					sprites.add(Vehicle.createBulldozer(x, y, moveRight));
-					break;
-
-				// is water transport
-				case "log":
-					sprites.add(WaterTransport.createLog(x, y, moveRight));
-					break;
-				case "longLog":
-					sprites.add(WaterTransport.createLonglog(x, y, moveRight));
-					break;
-				case "turtle":
-					sprites.add(WaterTransport.createTurtle(x, y, moveRight));
-					break;
-				}
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		return sprites;
+	public HudText createNumber(String prefix, int decimals, String suffix,
+			Color color) {
+		return new HudText(trueTypeFont, color, prefix, decimals, suffix);
 	}
 
-	
 	private void enterState(GameContainer gc, StateBasedGame sbg, 
 			GameState nextState) {
 		// enter another state and pass data
+		StateTransitionEvent event = new StateTransitionEvent();
+		event.begin();
 		historyState.add(sbg.getCurrentStateID());
 		sbg.addState(nextState);
 		try {
@@ -252,6 +210,12 @@ public abstract class State extends BasicGameState {
 			e.printStackTrace();
 		}
 		;
+		event.end();
+		if (event.shouldCommit()) {
+			event.source = sbg.getCurrentStateID();
+			event.target = nextState.getID();
+			event.commit();
+		}
 		sbg.enterState(nextState.getID(), new EmptyTransition(), 
 						new VerticalSplitTransition());
 		// pass data
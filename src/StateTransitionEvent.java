@@ -0,0 +1,34 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Flight recorder event of the game moving from one state to another,
+ * lasting while the next state is initialised.
+ * Disabled unless turned on in the recording settings.
+ */
+@Name("shadowleap.StateTransition")
+@Label("State Transition")
+@Category("Shadow Leap")
+@Description("Game entered another state")
+@Enabled(false)
+@StackTrace(false)
+public class StateTransitionEvent extends Event {
+	/** id of the state left */
+	@Label("Source State")
+	public int source;
+
+	/** id of the state entered */
+	@Label("Target State")
+	public int target;
+}
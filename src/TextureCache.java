@@ -0,0 +1,300 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.opengl.Texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+
+/**
+ * Shared, reference-counted cache of images keyed by asset path.
+ * Every sprite using the same asset shares a single decoded texture, which
+ * is destroyed once the last sprite holding it has been released.
+ * Assets packed by AtlasPacker are handed out as regions of the atlas
+ * page, which is decoded once and kept for the session, so they all
+ * share one texture; an asset newer than the atlas is loaded on its own.
+ * In headless mode no image is ever loaded, only the dimensions of assets
+ * are read, so the game rules can run without a display.
+ * Images must be acquired and released on the render thread, while
+ * dimensions may be read from any thread.
+ */
+public final class TextureCache {
+	/** bytes per texel of an uploaded texture (RGBA) */
+	public static final int BYTES_PER_TEXEL = 4;
+	/** path of the atlas page, holding every packed asset */
+	public static final String ATLAS_PAGE = "assets/atlas.png";
+	/** path of the index of the regions of the atlas page */
+	public static final String ATLAS_INDEX = "assets/atlas.idx";
+
+
+	/** A cached image and the number of holders referencing it */
+	private static class Entry {
+		/** the shared image */
+		private Image image;
+		/** is the image a region of the atlas page */
+		private boolean inAtlas;
+		/** horizontally mirrored view of the image, sharing its texture */
+		private Image flipped;
+		/** number of holders */
+		private int refCount;
+		/** texture memory used by the image */
+		private long bytes;
+	}
+
+
+	/** all resident images, keyed by asset path */
+	private static final HashMap<String, Entry> ENTRIES = new HashMap<>();
+
+	/** dimensions (width, height) of assets, keyed by asset path */
+	private static final ConcurrentHashMap<String, int[]> SIZES = 
+			new ConcurrentHashMap<>();
+
+	/** region (x, y, width, height) of each packed asset, by asset path
+	 * (null until the index is read) */
+	private static HashMap<String, int[]> regions;
+
+	/** the atlas page, once loaded */
+	private static Image atlas;
+
+	/** no display available, images are never loaded */
+	private static boolean headless = false;
+
+	/** number of acquisitions served from the cache */
+	private static long hits;
+
+	/** number of acquisitions that had to load the asset, by decoding it
+	 * or by cutting its region from the atlas page */
+	private static long misses;
+
+	/** total texture memory of all resident images */
+	private static long residentBytes;
+
+
+	/** Acquire the image of an asset, loading it on first use.
+	 * Every call must be paired with a call to release.
+	 * @param path Path to the asset.
+	 * @return Image Shared image of the asset.
+	 */
+	public static Image acquire(String path) throws SlickException {
+		Entry entry = ENTRIES.get(path);
+		if (entry != null) {
+			hits++;
+		} else {
+			misses++;
+			entry = new Entry();
+			entry.image = getRegion(path);
+			entry.inAtlas = entry.image != null;
+			if (!entry.inAtlas) {
+				entry.image = new Image(path);
+				entry.bytes = textureBytes(entry.image);
+				residentBytes += entry.bytes;
+			}
+			ENTRIES.put(path, entry);
+		}
+		entry.refCount++;
+		return entry.image;
+	}
+
+	/** Switch headless mode on or off. Must be set before sprites are
+	 * created.
+	 * @param headless Run without loading any image?
+	 */
+	public static void setHeadless(boolean headless) {
+		TextureCache.headless = headless;
+	}
+
+	/** Check if running in headless mode.
+	 * @return boolean Are images never loaded?
+	 */
+	public static boolean isHeadless() {
+		return headless;
+	}
+
+	/** Get the dimensions of an asset without decoding it, by reading only
+	 * the image header.
+	 * @param path Path to the asset.
+	 * @return int[] Width and height of the asset, in pixels.
+	 */
+	public static int[] getSize(String path) throws SlickException {
+		int[] size = SIZES.get(path);
+		if (size == null) {
+			size = readSize(path);
+			SIZES.put(path, size);
+		}
+		return size;
+	}
+
+	/** Get the horizontally mirrored image of a resident asset. The
+	 * mirrored copy is created once and shared by every holder.
+	 * @param path Path to an acquired asset.
+	 * @return Image Mirrored image, or null if asset is not resident.
+	 */
+	public static Image getFlipped(String path) {
+		Entry entry = ENTRIES.get(path);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.flipped == null) {
+			entry.flipped = entry.image.getFlippedCopy(true, false);
+		}
+		return entry.flipped;
+	}
+
+	/** Release one reference to an asset, destroying its texture once no
+	 * holder remains.
+	 * @param path Path to the asset.
+	 */
+	public static void release(String path) {
+		Entry entry = ENTRIES.get(path);
+		if (entry == null) {
+			return;
+		}
+		if (--entry.refCount > 0) {
+			return;
+		}
+		ENTRIES.remove(path);
+		if (entry.inAtlas) {
+			// the atlas page stays for other regions
+			return;
+		}
+		residentBytes -= entry.bytes;
+		try {
+			// the mirrored copy shares this texture
+			entry.image.destroy();
+		} catch (SlickException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/** Get number of acquisitions served without loading.
+	 * @return long Cache hits.
+	 */
+	public static long getHits() {
+		return hits;
+	}
+
+	/** Get number of acquisitions that loaded the asset.
+	 * @return long Cache misses.
+	 */
+	public static long getMisses() {
+		return misses;
+	}
+
+	/** Get texture memory used by all resident images.
+	 * @return long Resident bytes.
+	 */
+	public static long getResidentBytes() {
+		return residentBytes;
+	}
+
+	/** Get number of resident images.
+	 * @return int Resident textures.
+	 */
+	public static int getResidentCount() {
+		return ENTRIES.size();
+	}
+
+	/** Summarise the cache counters.
+	 * @return String Human readable counters.
+	 */
+	public static String report() {
+		return String.format("textures: %d resident, %d KB, %d hits, %d misses",
+				getResidentCount(), residentBytes / 1024, hits, misses);
+	}
+
+
+	private static Image getRegion(String path) throws SlickException {
+		// view of an asset's region of the atlas page, or null if not packed
+		int[] region = readIndex().get(path);
+		if (region == null) {
+			return null;
+		}
+		if (atlas == null) {
+			atlas = new Image(ATLAS_PAGE);
+			residentBytes += textureBytes(atlas);
+		}
+		return atlas.getSubImage(region[0], region[1], region[2], region[3]);
+	}
+
+	private static HashMap<String, int[]> readIndex() {
+		// read the atlas index once, leaving out assets changed since
+		if (regions != null) {
+			return regions;
+		}
+		regions = new HashMap<>();
+		File index = new File(ATLAS_INDEX);
+		if (!index.isFile() || !new File(ATLAS_PAGE).isFile()) {
+			return regions;
+		}
+		try {
+			for (String line : Files.readAllLines(index.toPath(), 
+					StandardCharsets.US_ASCII)) {
+				String[] cells = line.trim().split(" ");
+				if (cells.length != 5 || new File(cells[0]).lastModified() 
+						> index.lastModified()) {
+					continue;
+				}
+				int[] region = new int[4];
+				for (int i=0; i<region.length; i++) {
+					region[i] = Integer.parseInt(cells[i+1]);
+				}
+				regions.put(cells[0], region);
+			}
+		} catch (IOException | NumberFormatException e) {
+			// assets are loaded on their own instead
+			e.printStackTrace();
+			regions.clear();
+		}
+		return regions;
+	}
+
+	private static int[] readSize(String path) throws SlickException {
+		// read dimensions from the image header
+		try (ImageInputStream in = ImageIO.createImageInputStream(
+				new File(path))) {
+			if (in == null) {
+				throw new SlickException("Missing image: " + path);
+			}
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			if (!readers.hasNext()) {
+				throw new SlickException("Unsupported image: " + path);
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in);
+				return new int[] {reader.getWidth(0), reader.getHeight(0)};
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException e) {
+			throw new SlickException("Failed to read image: " + path, e);
+		}
+	}
+
+	private static long textureBytes(Image image) {
+		// textures are padded to power of two sizes when uploaded
+		Texture texture = image.getTexture();
+		if (texture == null) {
+			return (long) image.getWidth() * image.getHeight()
+					* BYTES_PER_TEXEL;
+		}
+		return (long) texture.getTextureWidth() * texture.getTextureHeight()
+				* BYTES_PER_TEXEL;
+	}
+
+	private TextureCache() {
+	}
+}
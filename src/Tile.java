@@ -24,7 +24,7 @@ public class Tile extends Sprite {
 	 * @return Tile Grass tile.
 	 */
 	public static Tile createGrassTile(float x, float y) {
-		return new Tile(GRASS_PATH, x, y, new String[0]);
+		return new Tile(GRASS_PATH, x, y, new Tag[0]);
 	}
 	
 	
@@ -34,7 +34,7 @@ public class Tile extends Sprite {
 	 * @return Tile Water tile.
 	 */
 	public static Tile createWaterTile(float x, float y) {
-		return new Tile(WATER_PATH, x, y, new String[] {LETHAL});
+		return new Tile(WATER_PATH, x, y, new Tag[] {LETHAL});
 	}
 	
 	
@@ -44,10 +44,10 @@ public class Tile extends Sprite {
 	 * @return Tile Tree tile.
 	 */
 	public static Tile createTreeTile(float x, float y) {
-		return new Tile(TREE_PATH, x, y, new String[] {SOLID});
+		return new Tile(TREE_PATH, x, y, new Tag[] {SOLID});
 	}
 	
-	private Tile(String imgPath, float x, float y, String[] tags) {
+	private Tile(String imgPath, float x, float y, Tag[] tags) {
 		super(imgPath, x, y, tags);
 	}
 
@@ -0,0 +1,239 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+
+/**
+ * Structure-of-arrays store of lane traffic (vehicles and water
+ * transport). Sizes and speeds are kept in primitive arrays, directions
+ * and reversibility in bitsets, grouped by lane. Each MovingObject
+ * attached to the store becomes a thin view of its slot.
+ *
+ * Objects are not moved one by one. Each lane keeps a clock, and the x
+ * position of an object is computed from its origin and the lane's time
+ * when it is needed: wrapping objects travel a loop of screen width plus
+ * their own width, reversing objects bounce between the edges of the
+ * screen. An object starting off screen, ahead of the loop, travels in a
+ * straight line until it first enters it. An update only advances the
+ * clocks and copies the new positions into the objects' bounds, and the
+ * spacing of objects never drifts.
+ */
+public class TrafficStore {
+
+	/** objects viewing each slot */
+	private MovingObject[] views;
+
+	/** x position of each object when its lane's clock read zero */
+	private double[] origin;
+
+	/** y position of each object */
+	private float[] y;
+
+	/** image width of each object */
+	private float[] width;
+
+	/** image height of each object */
+	private float[] height;
+
+	/** moving speed of each object */
+	private float[] speed;
+
+	/** lane of each object */
+	private int[] lane;
+
+	/** objects starting to the right from their origin */
+	private BitSet right = new BitSet();
+
+	/** objects that reverse direction at the edges of the screen */
+	private BitSet reversible = new BitSet();
+
+	/** first slot of each lane, with total size as last entry */
+	private int[] laneStart = new int[LaneIndex.LANES + 1];
+
+	/** time passed on each lane (milliseconds) */
+	private long[] laneTime = new long[LaneIndex.LANES];
+
+	/** time on each lane before the last update (milliseconds) */
+	private long[] prevLaneTime = new long[LaneIndex.LANES];
+
+
+	/** Constructor. Moves the state of the objects into the store.
+	 * @param objects Objects to be stored.
+	 */
+	public TrafficStore(ArrayList<MovingObject> objects) {
+		int size = objects.size();
+		views = new MovingObject[size];
+		origin = new double[size];
+		y = new float[size];
+		width = new float[size];
+		height = new float[size];
+		speed = new float[size];
+		lane = new int[size];
+
+		// count objects per lane, then place each at the end of its lane
+		int[] next = new int[LaneIndex.LANES + 1];
+		for (MovingObject object : objects) {
+			next[LaneIndex.laneOf(object.getY()) + 1]++;
+		}
+		for (int l=0; l<LaneIndex.LANES; l++) {
+			next[l + 1] += next[l];
+		}
+		System.arraycopy(next, 0, laneStart, 0, next.length);
+
+		for (MovingObject object : objects) {
+			int l = LaneIndex.laneOf(object.getY());
+			int slot = next[l]++;
+			views[slot] = object;
+			y[slot] = object.getY();
+			width[slot] = object.getWidth();
+			height[slot] = object.getHeight();
+			speed[slot] = object.getSpeed();
+			lane[slot] = l;
+			reversible.set(slot, object.hasTag(Sprite.REVERSIBLE));
+
+			float x = object.getX();
+			if (reversible.get(slot)) {
+				// start between the edges it bounces off
+				x = Math.max(width[slot]/2,
+						Math.min(App.SCREEN_WIDTH - width[slot]/2, x));
+			}
+			rebase(slot, x, object.isMovingRight());
+			object.attach(this, slot);
+		}
+	}
+
+
+	/** Advance the clock of every lane by a simulation step.
+	 * @param delta Time passed since last update (milliseconds).
+	 */
+	public void update(int delta) {
+		for (int l=0; l<LaneIndex.LANES; l++) {
+			prevLaneTime[l] = laneTime[l];
+			laneTime[l] += delta;
+			for (int slot=laneStart[l]; slot<laneStart[l + 1]; slot++) {
+				syncBounds(slot);
+			}
+		}
+	}
+
+
+	/** Get number of objects in the store.
+	 * @return int Number of objects.
+	 */
+	public int size() {
+		return views.length;
+	}
+
+	/** Get x position of an object.
+	 * @param slot Slot of object.
+	 * @return float X position.
+	 */
+	public float getX(int slot) {
+		return positionAt(slot, laneTime[lane[slot]]);
+	}
+
+	/** Get x position of an object before the last update.
+	 * @param slot Slot of object.
+	 * @return float Previous x position.
+	 */
+	public float getPrevX(int slot) {
+		return positionAt(slot, prevLaneTime[lane[slot]]);
+	}
+
+	/** Set x position of an object, keeping its direction.
+	 * @param slot Slot of object.
+	 * @param x X position.
+	 */
+	public void setX(int slot, float x) {
+		rebase(slot, x, isMovingRight(slot));
+	}
+
+	/** Get speed of an object.
+	 * @param slot Slot of object.
+	 * @return float Moving speed.
+	 */
+	public float getSpeed(int slot) {
+		return speed[slot];
+	}
+
+	/** Get direction of an object.
+	 * @param slot Slot of object.
+	 * @return boolean Moving right?
+	 */
+	public boolean isMovingRight(int slot) {
+		if (!reversible.get(slot)) {
+			return right.get(slot);
+		}
+		// first half of the bounce goes the way it started
+		double span = App.SCREEN_WIDTH - width[slot];
+		double s = bounce(slot, laneTime[lane[slot]], span);
+		return right.get(slot) ? s < span : s > span;
+	}
+
+	/** Reverse direction of an object, where it currently is.
+	 * @param slot Slot of object.
+	 */
+	public void reverseDir(int slot) {
+		rebase(slot, getX(slot), !isMovingRight(slot));
+	}
+
+
+	private void rebase(int slot, float x, boolean moveRight) {
+		// set origin so object is at x now, heading the given way
+		right.set(slot, moveRight);
+		origin[slot] = x - velocity(slot) * laneTime[lane[slot]];
+		syncBounds(slot);
+	}
+
+	private void syncBounds(int slot) {
+		// move the bounds of the object viewing a slot to its position
+		views[slot].getBounds().setX(getX(slot));
+	}
+
+	private double velocity(int slot) {
+		// signed speed of object
+		return right.get(slot) ? speed[slot] : -speed[slot];
+	}
+
+	private double bounce(int slot, long time, double span) {
+		// distance along a bounce there and back, from the left edge
+		double s = origin[slot] + velocity(slot) * time - width[slot]/2;
+		return floorMod(s, 2 * span);
+	}
+
+	private float positionAt(int slot, long time) {
+		// x position of object at a time on its lane's clock
+		double w = width[slot];
+		if (reversible.get(slot)) {
+			double span = App.SCREEN_WIDTH - w;
+			double s = bounce(slot, time, span);
+			return (float) (w/2 + (s <= span ? s : 2 * span - s));
+		}
+
+		// wrapping objects loop from one side of the screen to the other,
+		// once they have first reached the side they enter from
+		double u = origin[slot] + velocity(slot) * time;
+		double period = App.SCREEN_WIDTH + w;
+		if (right.get(slot)) {
+			if (u < -w/2) {
+				return (float) u;
+			}
+			return (float) (-w/2 + floorMod(u + w/2, period));
+		}
+		if (u > App.SCREEN_WIDTH + w/2) {
+			return (float) u;
+		}
+		return (float) (App.SCREEN_WIDTH + w/2
+						- floorMod(App.SCREEN_WIDTH + w/2 - u, period));
+	}
+
+	private static double floorMod(double a, double m) {
+		// remainder of a divided by m, never negative
+		double r = a % m;
+		return r < 0 ? r + m : r;
+	}
+}
@@ -3,7 +3,6 @@
  * by Xuanken Tay, University of Melbourne
  */
 
-import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.SlickException;
 
 /**
@@ -36,7 +35,7 @@ public class Vehicle extends MovingObject {
 	 */
 	public static Vehicle createBus(float x, float y, boolean moveRight) {
 		return new Vehicle(BUS_PATH, x, y, BUS_SPEED, moveRight, 
-						new String[] {LETHAL, FLIPPABLE});
+						new Tag[] {LETHAL, FLIPPABLE});
 	}
 	
 	/** Static method to create a racecar.
@@ -47,7 +46,7 @@ public class Vehicle extends MovingObject {
 	 */
 	public static Vehicle createRacecar(float x, float y, boolean moveRight) {
 		return new Vehicle(RACECAR_PATH, x, y, RACECAR_SPEED, moveRight, 
-						new String[] {LETHAL, FLIPPABLE});
+						new Tag[] {LETHAL, FLIPPABLE});
 	}
 	
 	/** Static method to create a bike.
@@ -58,7 +57,7 @@ public class Vehicle extends MovingObject {
 	 */
 	public static Vehicle createBike(float x, float y, boolean moveRight) {
 		return new Vehicle(BIKE_PATH, x, y, BIKE_SPEED, moveRight, 
-						new String[] {LETHAL, REVERSIBLE, FLIPPABLE});
+						new Tag[] {LETHAL, REVERSIBLE, FLIPPABLE});
 	}
 	
 	/** Static method to create a bulldozer.
@@ -70,26 +69,26 @@ public class Vehicle extends MovingObject {
 	public static Vehicle createBulldozer(float x, float y,
 			boolean moveRight) {
 		return new Vehicle(BULLDOZER_PATH, x, y, BULLDOZER_SPEED, moveRight, 
-						new String[] {SOLID, FLIPPABLE});
+						new Tag[] {SOLID, FLIPPABLE});
 	}
 
 
 	@Override
-	public void update(GameContainer gc, int delta) throws SlickException {
+	public void update(InputSource input, int delta) throws SlickException {
 		// add on to how sprite moves
 		
-		if (hasTag(REVERSIBLE)) {
+		if (hasTag(REVERSIBLE) && !isStored()) {
 			// reverse direction if necessary (only for bike(
 			handleReverse();
 		}
 		
 		// continue moving as usual
-		super.update(gc, delta);
+		super.update(input, delta);
 		
 	}
 	
 	private Vehicle(String imgPath, float x, float y, float speed,
-			boolean moveRight, String[] tags) {
+			boolean moveRight, Tag[] tags) {
 		super(imgPath, x, y, speed, moveRight, tags);
 	}
 	
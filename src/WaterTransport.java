@@ -3,8 +3,6 @@
  * by Xuanken Tay, University of Melbourne
  */
 
-import org.newdawn.slick.GameContainer;
-import org.newdawn.slick.Graphics;
 import org.newdawn.slick.SlickException;
 
 /**
@@ -45,7 +43,7 @@ public class WaterTransport extends MovingObject {
 	public static WaterTransport createLog(float x, float y, 
 			boolean moveRight) {
 		return new WaterTransport(LOG_PATH, x, y, LOG_SPEED, moveRight,
-					new String[] {FLOATING});
+					new Tag[] {FLOATING});
 	}
 	
 	
@@ -58,7 +56,7 @@ public class WaterTransport extends MovingObject {
 	public static WaterTransport createLonglog(float x, float y,
 			boolean moveRight) {
 		return new WaterTransport(LONGLOG_PATH, x, y, LONGLOG_SPEED, moveRight,
-					new String[] {FLOATING});
+					new Tag[] {FLOATING});
 	}
 	
 	
@@ -71,12 +69,12 @@ public class WaterTransport extends MovingObject {
 	public static WaterTransport createTurtle(float x, float y,
 			boolean moveRight) {
 		return new WaterTransport(TURTLE_PATH, x, y, TURTLE_SPEED, moveRight,
-					new String[] {FLOATING, DIVEABLE, FLIPPABLE});
+					new Tag[] {FLOATING, DIVEABLE, FLIPPABLE});
 	}
 	
 
 	@Override
-	public void update(GameContainer gc, int delta) throws SlickException {
+	public void update(InputSource input, int delta) throws SlickException {
 		// some sprite (turtle) can dive
 		
 		if (hasTag(DIVEABLE)) {
@@ -84,23 +82,30 @@ public class WaterTransport extends MovingObject {
 		}
 		
 		// move as usual
-		super.update(gc, delta);
+		super.update(input, delta);
 		
 	}
 	
 	
 
 	@Override
-	public void render(Graphics g) throws SlickException {
-		// do not render diving sprite.
-		if (!isDiving) {
-			super.render(g);
-		}
+	public void reset(float x, float y, boolean moveRight) {
+		// resurface and restart the diving cycle
+		isDiving = false;
+		timeLastDived = 0;
+		super.reset(x, y, moveRight);
+	}
+	
+	
+	@Override
+	public boolean isVisible() {
+		// diving sprite is not shown
+		return !isDiving;
 	}
 	
 	
 	private WaterTransport(String imgPath, float x, float y, float speed, 
-			boolean moveRight, String[] tags) {
+			boolean moveRight, Tag[] tags) {
 		super(imgPath, x, y, speed, moveRight, tags);
 	}
 	
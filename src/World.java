@@ -8,7 +8,7 @@ import org.newdawn.slick.SlickException;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
 import org.newdawn.slick.Input;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.ArrayList;
 
 
@@ -26,32 +26,141 @@ public class World {
 	public static final float LIVES_SEP = 32;
 	/** path to lives images */
 	public static final String LIVES_PATH = "assets/lives.png";
+	/** time per frame spent preparing textures of a new world (ns) */
+	public static final long PREPARE_BUDGET = 2000000L;
+	/** sprites prepared between checks of the time budget */
+	private static final int PREPARE_BATCH = 32;
+	/** tags of sprites the player reacts to touching */
+	public static final int PLAYER_CONTACT_TAGS = Sprite.Tag.mask(
+			Sprite.LETHAL, Sprite.SOLID, Sprite.FLOATING, Sprite.PICKUP);
+	/** tags of sprites tested for passing through the player in a step */
+	public static final int SWEPT_TAGS = 
+			Sprite.Tag.mask(Sprite.LETHAL, Sprite.SOLID);
+	/** default length of a simulation step (milliseconds) */
+	public static final int STEP = 10;
+	/** most simulation steps run in one frame, longer frames lose time */
+	public static final int MAX_STEPS = 25;
 	
 	
 	/** Array list containing all sprites */
 	private ArrayList<Sprite> sprites;
+	/** Sprites that never move, drawn through the baked terrain */
+	private ArrayList<Sprite> staticSprites = new ArrayList<>();
+	/** Sprites drawn individually every frame */
+	private ArrayList<Sprite> dynamicSprites = new ArrayList<>();
+	/** Images of the frame, drawn in batches by texture */
+	private RenderQueue queue = new RenderQueue();
+	/** Static sprites pre-rendered into a single image */
+	private Image terrain;
+	/** Sprites updated by their own update method every frame */
+	private ArrayList<Sprite> selfUpdating = new ArrayList<>();
+	/** Lane traffic in structure-of-arrays form (null if not used) */
+	private TrafficStore traffic;
+	/** Reusable list of sprites around the player */
+	private ArrayList<Sprite> nearby = new ArrayList<>();
+	/** Collisions between sprites, and of sprites with the player; also
+	 * answers queries around the player */
+	private CollisionStage collisions = new CollisionStage();
+	/** Number of extra lives in the world */
+	private int extraLives = 0;
 	/** The player */
 	private Player player;
 	/** Lives image */
-	private Image lives = new Image("assets/lives.png");
+	private Image lives;
+	/** Slick input of the game container, adapted for the world */
+	private InputSource slickInput;
 	/** Array of goals */
 	private Goal[] goals;
 	/** Level status */
 	private boolean levelCompleted = false;
 	/** Game status */
 	private boolean gameOver = false;
+	/** Textures have been released */
+	private boolean disposed = false;
+	/** All textures loaded and terrain baked */
+	private boolean prepared = false;
+	/** Number of sprites whose textures are loaded */
+	private int preparedSprites = 0;
+	/** World replaced by this one, released once this one is prepared */
+	private World predecessor;
+	/** Length of a simulation step (milliseconds) */
+	private int step = STEP;
+	/** Time passed but not yet simulated (milliseconds) */
+	private int accumulator = 0;
+	/** Key presses waiting for a simulation step */
+	private BufferedInput pending = new BufferedInput();
+	/** Time simulated in this world (milliseconds) */
+	private long time = 0;
+	/** Identity of the world, naming its random stream (or null) */
+	private String id;
+	/** Random stream placing extra lives */
+	private SplittableRandom random = 
+			GameRandom.create("", GameRandom.EXTRA_LIFE);
+	/** Shortest and longest wait for an extra life (0 if none appear) */
+	private int extraLifeMin = 0, extraLifeMax = 0;
+	/** Time the next extra life appears (-1 if not waiting for one) */
+	private long extraLifeDue = -1;
+	/** Can the player ask for the world to be shuffled */
+	private boolean shuffleable = false;
+	/** Player asked for the world to be shuffled */
+	private boolean shuffleRequested = false;
 	
 	
-	/** Constructor.
+	/** Constructor. Needs no display, so worlds can be built off the
+	 * render thread; textures are loaded later by prepare. Traffic is
+	 * moved by the sprites themselves.
 	 * @param player Player of the game.
 	 * @param sprites Array list of all sprites.
 	 * @param goals Array of goals.
 	 */
 	public World(Player player, ArrayList<Sprite> sprites, Goal[] goals) 
 			throws SlickException {
+		this(player, sprites, goals, false);
+	}
+	
+	
+	/** Constructor, choosing how lane traffic is stored.
+	 * @param player Player of the game.
+	 * @param sprites Array list of all sprites.
+	 * @param goals Array of goals.
+	 * @param useTrafficStore Move traffic into a structure-of-arrays store?
+	 */
+	public World(Player player, ArrayList<Sprite> sprites, Goal[] goals,
+			boolean useTrafficStore) throws SlickException {
 		this.player = player;
 		this.sprites = sprites;
 		this.goals = goals;
+		
+		ArrayList<MovingObject> stored = new ArrayList<>();
+		for (Sprite sprite : sprites) {
+			if (sprite instanceof ExtraLife) {
+				extraLives++;
+			}
+			if (isStatic(sprite)) {
+				staticSprites.add(sprite);
+			} else {
+				dynamicSprites.add(sprite);
+			}
+			
+			if (useTrafficStore && sprite instanceof MovingObject) {
+				stored.add((MovingObject) sprite);
+				// diving is still handled by the sprite itself
+				if (sprite.hasTag(Sprite.DIVEABLE)) {
+					selfUpdating.add(sprite);
+				}
+			} else {
+				selfUpdating.add(sprite);
+			}
+			collisions.add(sprite);
+		}
+		if (useTrafficStore) {
+			this.traffic = new TrafficStore(stored);
+		}
+		
+		// the player reacts to hazards, rides and pickups it touches, and
+		// to hazards passing through it within a step
+		collisions.addRule(player, PLAYER_CONTACT_TAGS, SWEPT_TAGS, 
+				(self, other) -> player.onCollision(other));
 	}
 	
 	
@@ -61,15 +170,90 @@ public class World {
      */
 	public void update(GameContainer gc, int delta) 
 		throws SlickException {
+		if (slickInput == null) {
+			slickInput = InputSource.of(gc.getInput());
+		}
+		update(slickInput, delta);
+	}
+	
+	
+	/** Update the world for a frame, without needing a game container.
+	 * Time passed is simulated in fixed steps, so outcomes do not depend
+	 * on the frame rate; any remainder is carried over to the next frame.
+     * @param input Source of key presses.
+     * @param delta Time passed since last frame (milliseconds).
+     */
+	public void update(InputSource input, int delta) 
+		throws SlickException {
+		// the event is only created while some recording wants it
+		WorldTickEvent event = null;
+		int deaths = 0, filled = 0;
+		if (WorldTickEvent.TYPE.isEnabled()) {
+			event = new WorldTickEvent();
+			event.begin();
+			deaths = player.getDeaths();
+			filled = countFilledGoals();
+		}
+		
+		long start = FrameProfiler.start();
+		pending.capture(input);
+		FrameProfiler.stop(FrameProfiler.Phase.INPUT, start);
+		accumulator += delta;
+		
+		int steps = 0;
+		while (accumulator >= step && steps < MAX_STEPS
+				&& !levelCompleted && !gameOver && !shuffleRequested) {
+			accumulator -= step;
+			tick(ReplaySession.stepInput(pending), step);
+			steps++;
+		}
+		if (steps == MAX_STEPS) {
+			// fall behind rather than spiral into ever longer frames
+			accumulator %= step;
+		}
 		
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.steps = steps;
+			event.sprites = sprites.size();
+			event.deaths = player.getDeaths() - deaths;
+			event.goalsFilled = countFilledGoals() - filled;
+			event.commit();
+		}
+	}
+	
+	
+	/** Advance the world by one simulation step.
+     * @param input Source of key presses.
+     * @param delta Length of the step (milliseconds).
+     */
+	public void tick(InputSource input, int delta) 
+		throws SlickException {
+		
+		// remember positions to interpolate from when rendering
+		player.savePosition();
+		for (Sprite sprite : this.selfUpdating) {
+			sprite.savePosition();
+		}
 		
+		long start = FrameProfiler.start();
+		time += delta;
 		if (hasExtraLife()) {
 			// handle the removal of extra life
 			checkExtraLife();
 		}
+		if (extraLifeMax > 0) {
+			// handle the creation of extra life
+			handleExtraLife();
+		}
+		FrameProfiler.stop(FrameProfiler.Phase.RULES, start);
 		
 		// cheat code to fill goals (remove afterwards)
-		if (gc.getInput().isKeyPressed(Input.KEY_ENTER)) {
+		start = FrameProfiler.start();
+		if (input.isKeyPressed(Input.KEY_ENTER)) {
 			for (Goal goal : goals) {
 				if (!goal.isFilled()) {
 					goal.fillGoal(player);
@@ -77,22 +261,37 @@ public class World {
 				}
 			}
 		}
+		// special key to randomise the world
+		if (shuffleable && input.isKeyPressed(Input.KEY_SPACE)) {
+			shuffleRequested = true;
+		}
+		FrameProfiler.stop(FrameProfiler.Phase.INPUT, start);
 
 		// update player with inputs
-		player.update(gc, delta);
+		start = FrameProfiler.start();
+		player.update(input, delta);
+		FrameProfiler.stop(FrameProfiler.Phase.PLAYER, start);
 		
 
 		// check if player is floating
+		start = FrameProfiler.start();
 		checkFloating();
+		FrameProfiler.stop(FrameProfiler.Phase.FLOATING, start);
 		
 		
-		// update all sprites 
-		for (Sprite sprite : this.sprites) {
-			sprite.update(gc, delta);
-			if (player.collidesWith(sprite)) {
-				player.onCollision(sprite);
-			}
+		// update all sprites, moving stored traffic in one pass
+		start = FrameProfiler.start();
+		if (traffic != null) {
+			traffic.update(delta);
+		}
+		for (Sprite sprite : this.selfUpdating) {
+			sprite.update(input, delta);
 		}
+		FrameProfiler.stop(FrameProfiler.Phase.SPRITES, start);
+		
+		// collisions between sprites, then with the player
+		start = FrameProfiler.start();
+		collisions.update(delta);
 
 		
 		// check if player has reached goal
@@ -101,12 +300,15 @@ public class World {
 				player.onCollision(goal);
 			}
 		}
+		FrameProfiler.stop(FrameProfiler.Phase.COLLISION, start);
 		
 		// check if game is completed
+		start = FrameProfiler.start();
 		checkLevelCompleted();
 		
 		// check if player has no more lives
 		checkGameOver();
+		FrameProfiler.stop(FrameProfiler.Phase.RULES, start);
 
 	}
 	
@@ -115,23 +317,166 @@ public class World {
      * @param g The Slick graphics object, used for drawing.
      */
 	public void render(Graphics g) throws SlickException {
+		long start = FrameProfiler.start();
 		
-		// render all sprites
-		for (Sprite sprite : this.sprites) {
-			sprite.render(g);
+		// finish loading textures, a little every frame
+		prepare(PREPARE_BUDGET);
+		
+		// place moving sprites between the last two simulation steps
+		float alpha = getAlpha();
+		for (Sprite sprite : this.dynamicSprites) {
+			sprite.interpolate(alpha);
+		}
+		player.interpolate(alpha);
+		
+		// render terrain, baked once per world
+		if (terrain != null) {
+			queue.add(RenderQueue.TILES, terrain, 0, 0);
+		} else {
+			for (Sprite sprite : this.staticSprites) {
+				if (prepared || sprite.isImageLoaded()) {
+					submit(RenderQueue.TILES, sprite);
+				}
+			}
+		}
+		
+		// render all moving sprites in view
+		for (Sprite sprite : this.dynamicSprites) {
+			if (prepared || sprite.isImageLoaded()) {
+				submit(RenderQueue.TRAFFIC, sprite);
+			}
 		}
 		
 		// draw (filled) goals
 		for (Goal goal : this.goals) {
-			goal.render(g);
+			submit(RenderQueue.GOALS, goal);
 		}
 		
 		// draw player
-		player.render(g);
+		queue.add(RenderQueue.PLAYER, player);
 		
 		// draw lives
-		renderLives(g);
+		renderLives();
 		
+		// one batch per texture and layer
+		queue.flush(g);
+		
+		FrameProfiler.setSprites(sprites.size() + goals.length + 1);
+		FrameProfiler.stop(FrameProfiler.Phase.RENDER, start);
+		
+	}
+
+	/** Load textures of sprites and bake the terrain, stopping once the
+	 * time budget is used up. Must be called on the render thread.
+	 * @param budget Time that may be spent (nanoseconds).
+	 * @return boolean Is world fully prepared?
+	 */
+	public boolean prepare(long budget) {
+		if (prepared) {
+			return true;
+		}
+		long start = System.nanoTime();
+		
+		// load textures of sprites, checking the budget every batch
+		while (preparedSprites < sprites.size()) {
+			sprites.get(preparedSprites++).loadImage();
+			if (preparedSprites % PREPARE_BATCH == 0 
+					&& System.nanoTime() - start > budget) {
+				return false;
+			}
+		}
+		for (Goal goal : this.goals) {
+			goal.loadImage();
+		}
+		if (lives == null) {
+			try {
+				lives = TextureCache.acquire(LIVES_PATH);
+			} catch (SlickException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		// bake terrain, in a frame of its own if budget is used up
+		if (System.nanoTime() - start > budget) {
+			return false;
+		}
+		bakeTerrain();
+		prepared = true;
+		
+		// textures shared with the previous world are now held by this one
+		if (predecessor != null) {
+			predecessor.dispose();
+			predecessor = null;
+		}
+		return true;
+	}
+	
+	/** Set the length of a simulation step. Longer steps lower the cost of
+	 * simulation on weak hardware.
+	 * @param step Length of a step (milliseconds).
+	 */
+	public void setStep(int step) {
+		this.step = Math.max(1, step);
+	}
+	
+	/** Get the fraction of a step passed since the last simulation step.
+	 * @return float Interpolation factor, from 0 to 1.
+	 */
+	public float getAlpha() {
+		return Math.min(1f, (float) accumulator / step);
+	}
+	
+	/** Check if textures are loaded and terrain is baked.
+	 * @return boolean Is world fully prepared?
+	 */
+	public boolean isPrepared() {
+		return prepared;
+	}
+	
+	/** Set the world this one replaces. It is released once this world is
+	 * prepared, so textures both use stay loaded.
+	 * @param previous World being replaced (or null).
+	 */
+	public void setPredecessor(World previous) {
+		if (predecessor != null) {
+			predecessor.dispose();
+		}
+		predecessor = previous;
+	}
+
+	/** Release the textures held by this world's sprites and goals, and
+	 * return its sprites to their pools. The world must not be used
+	 * afterwards. The (singleton) player is kept, as it lives across
+	 * worlds.
+	 */
+	public void dispose() {
+		if (disposed) {
+			return;
+		}
+		disposed = true;
+		if (predecessor != null) {
+			predecessor.dispose();
+			predecessor = null;
+		}
+		for (Sprite sprite : this.sprites) {
+			sprite.dispose();
+			SpritePool.recycle(sprite);
+		}
+		for (Goal goal : this.goals) {
+			goal.dispose();
+		}
+		if (lives != null) {
+			TextureCache.release(LIVES_PATH);
+			lives = null;
+		}
+		if (terrain != null) {
+			try {
+				terrain.destroy();
+			} catch (SlickException e) {
+				e.printStackTrace();
+			}
+			terrain = null;
+		}
 	}
 
 	/** Return level status.
@@ -159,12 +504,76 @@ public class World {
 			}
 		}
 		// choose a random log and create extra life on it
-		int randint = new Random().nextInt(list.size());
+		int randint = random.nextInt(list.size());
 		WaterTransport randomLog = list.get(randint);
 		
 		ExtraLife extraLife = ExtraLife.createExtraLife(randomLog.getX(), 
 									randomLog.getY(), randomLog);
 		sprites.add(extraLife);
+		dynamicSprites.add(extraLife);
+		selfUpdating.add(extraLife);
+		collisions.add(extraLife);
+		extraLives++;
+	}
+	
+	
+	/** Add a rule for sprites colliding with each other (the player is
+	 * not included). Collisions are found once per simulation step.
+	 * @param tagsA Tags of the first sprite (see Sprite.Tag.mask, 0 for
+	 * any sprite).
+	 * @param tagsB Tags of the second sprite (0 for any sprite).
+	 * @param handler Reaction to the two colliding, which may move them.
+	 */
+	public void addCollisionRule(int tagsA, int tagsB, 
+			CollisionStage.PairHandler handler) {
+		collisions.addRule(tagsA, tagsB, handler);
+	}
+	
+	
+	/** Let extra lives appear on logs, one at a time, each a random time
+	 * after the previous one has gone.
+	 * @param minSeconds Shortest wait for an extra life (seconds).
+	 * @param maxSeconds Longest wait for an extra life (seconds).
+	 */
+	public void enableExtraLives(int minSeconds, int maxSeconds) {
+		extraLifeMin = minSeconds;
+		extraLifeMax = maxSeconds;
+		scheduleExtraLife();
+	}
+	
+	
+	/** Set the identity of the world, which names it in replays and
+	 * its random streams.
+	 * @param id Identity of the world, unique within a game.
+	 */
+	public void setIdentity(String id) {
+		this.id = id;
+		this.random = GameRandom.create(id, GameRandom.EXTRA_LIFE);
+	}
+	
+	
+	/** Get the identity of the world.
+	 * @return String Identity of the world (or null if not set).
+	 */
+	public String getId() {
+		return id;
+	}
+	
+	
+	/** Allow the player to ask for the world to be shuffled (SPACE).
+	 * @param shuffleable Can the world be shuffled?
+	 */
+	public void setShuffleable(boolean shuffleable) {
+		this.shuffleable = shuffleable;
+	}
+	
+	
+	/** Check if the player asked for the world to be shuffled. The world
+	 * is not simulated any further once asked.
+	 * @return boolean Shuffle requested?
+	 */
+	public boolean isShuffleRequested() {
+		return shuffleRequested;
 	}
 	
 	
@@ -172,19 +581,54 @@ public class World {
 	 * @return boolean Presence of extra life.
 	 */
 	public boolean hasExtraLife() {
-		for (Sprite sprite: this.sprites) {
-			if (sprite instanceof ExtraLife) {
-				return true;
-			}
+		return extraLives > 0;
+	}
+	
+
+	private void handleExtraLife() {
+		// create extra life when due, wait again once it has gone
+		if (extraLifeDue >= 0 && time > extraLifeDue) {
+			createExtraLife();
+			extraLifeDue = -1;
+		} else if (extraLifeDue < 0 && !hasExtraLife()) {
+			scheduleExtraLife();
 		}
-		return false;
+	}
+	
+	
+	private void scheduleExtraLife() {
+		// pick time next extra life appears
+		int bound = extraLifeMax - extraLifeMin + 1;
+		int seconds = random.nextInt(bound) + extraLifeMin;
+		extraLifeDue = time + seconds * 1000L;
 	}
 	
 
 	private void checkExtraLife() {
 		// check if need to destroy any destroyed extra life
-		sprites.removeIf(s -> (s instanceof ExtraLife && 
-								((ExtraLife)s).isDestroyed()));
+		sprites.removeIf(s -> {
+			if (s instanceof ExtraLife && ((ExtraLife)s).isDestroyed()) {
+				dynamicSprites.remove(s);
+				selfUpdating.remove(s);
+				collisions.remove(s);
+				s.dispose();
+				extraLives--;
+				return true;
+			}
+			return false;
+		});
+	}
+	
+
+	private int countFilledGoals() {
+		// number of goals filled so far
+		int filled = 0;
+		for (Goal goal : this.goals) {
+			if (goal.isFilled()) {
+				filled++;
+			}
+		}
+		return filled;
 	}
 	
 
@@ -209,7 +653,9 @@ public class World {
 	
 	private void checkFloating() {
 		// update player's floating status
-		for (Sprite sprite : this.sprites) {
+		nearby.clear();
+		collisions.query(player, Sprite.FLOATING.bit(), nearby);
+		for (Sprite sprite : nearby) {
 			if (sprite.hasTag(Sprite.FLOATING) && player.collidesWith(sprite)) {
 				// player is riding something
 				if (!player.hasTag(Sprite.FLOATING)) {
@@ -225,13 +671,52 @@ public class World {
 	}
 	
 
-	private void renderLives(Graphics g) {
+	private static boolean isStatic(Sprite sprite) {
+		// sprites that never move nor change appearance
+		return !(sprite instanceof MovingObject || sprite instanceof ExtraLife
+				|| sprite instanceof Goal);
+	}
+	
+	
+	private void bakeTerrain() {
+		// draw all static sprites once into an offscreen image
+		try {
+			terrain = new Image(App.SCREEN_WIDTH, App.SCREEN_HEIGHT);
+			Graphics tg = terrain.getGraphics();
+			for (Sprite sprite : this.staticSprites) {
+				queue.add(RenderQueue.TILES, sprite);
+			}
+			queue.flush(tg);
+			tg.flush();
+		} catch (SlickException e) {
+			// no offscreen rendering support, fall back to direct drawing
+			e.printStackTrace();
+			terrain = null;
+		}
+	}
+	
+	
+	private void submit(int layer, Sprite sprite) {
+		// queue a sprite, unless it is hidden or outside the screen
+		if (sprite.isVisible() && sprite.isInView(0, 0, App.SCREEN_WIDTH, 
+												App.SCREEN_HEIGHT)) {
+			queue.add(layer, sprite);
+		} else {
+			FrameProfiler.countCulled();
+		}
+	}
+	
+	
+	private void renderLives() {
 		// render lives on screen 
+		if (lives == null) {
+			return;
+		}
 		for (int i=0; i<player.getLives(); i++) {
 			float livesX = LIVES_X + i * LIVES_SEP;
 			
 			float livesY = LIVES_Y;
-			g.drawImage(lives, livesX-lives.getWidth()/2, 
+			queue.add(RenderQueue.HUD, lives, livesX-lives.getWidth()/2, 
 						livesY-lives.getHeight()/2);
 		}
 	}
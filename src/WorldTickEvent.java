@@ -0,0 +1,47 @@
+/**
+ * Project for SWEN20003: Object Oriented Software Development 2018
+ * by Xuanken Tay, University of Melbourne
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Flight recorder event of a frame's update of the World.
+ * Disabled unless turned on in the recording settings.
+ */
+@Name("shadowleap.WorldTick")
+@Label("World Tick")
+@Category("Shadow Leap")
+@Description("World updated for a frame")
+@Enabled(false)
+@StackTrace(false)
+public class WorldTickEvent extends Event {
+	/** type of the event, telling whether a recording wants it before
+	 * one is created */
+	public static final EventType TYPE = 
+			EventType.getEventType(WorldTickEvent.class);
+
+	/** simulation steps run in the frame */
+	@Label("Steps")
+	public int steps;
+
+	/** sprites in the world */
+	@Label("Sprites")
+	public int sprites;
+
+	/** times the player died during the frame */
+	@Label("Player Deaths")
+	public int deaths;
+
+	/** goals filled during the frame */
+	@Label("Goals Filled")
+	public int goalsFilled;
+}
@@ -7,7 +7,7 @@ package utilities;
 import org.newdawn.slick.Image;
 
 public class BoundingBox {
-	private static final float FUZZ = 0.95f;
+	public static final float FUZZ = 0.95f;
 	
 	private float left;
 	private float top;